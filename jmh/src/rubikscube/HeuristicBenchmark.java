@@ -0,0 +1,70 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Heuristic.calculate per call over a fixed sample of cubes 5 to 20 random
+ * moves from solved, the depths a search spends most time at. Pattern
+ * databases are measured with -p heuristic=PatternDatabaseHeuristic -p databases=dir
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeuristicBenchmark {
+    private static final int SAMPLE_CUBES = 1024;
+
+    @Param({"MisplacedTilesHeuristic", "CubieDistanceHeuristic"})
+    public String heuristic;
+
+    // Directory of the pattern database files
+    @Param("pdb")
+    public String databases;
+
+    private Heuristic evaluator;
+    private final RubiksCube[] sample = new RubiksCube[SAMPLE_CUBES];
+
+    @Setup
+    public void setup() throws IOException {
+        switch (heuristic) {
+            case "MisplacedTilesHeuristic": evaluator = new MisplacedTilesHeuristic(); break;
+            case "CubieDistanceHeuristic": evaluator = new CubieDistanceHeuristic(); break;
+            case "PatternDatabaseHeuristic": evaluator = PatternDatabaseHeuristic.load(Paths.get(databases)); break;
+            default: throw new IllegalArgumentException("Unknown heuristic " + heuristic);
+        }
+
+        SplittableRandom random = new SplittableRandom(225);
+        for(int i = 0; i < sample.length; i++){
+            sample[i] = new RubiksCube();
+            ScrambleGenerator.randomMoves(random, 5 + random.nextInt(16), sample[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_CUBES)
+    public long calculate() {
+        long sum = 0;
+        for(RubiksCube cube: sample){
+            sum += evaluator.calculate(cube);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,60 @@
+package rubikscube;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one face turn on the packed cube, through the notation parser and
+ * through the move index. Scores are per move.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+    // Fixed scramble and move sample, so runs are comparable
+    static final String SCRAMBLE = "R U' F2 D B' L2 U R' F D2 L B2 U' R2 F' D L' B U2 R";
+    private static final int SCRAMBLE_MOVES = 20;
+    private static final int RANDOM_MOVES = 4096;
+
+    private final RubiksCube cube = new RubiksCube();
+    private final int[] moves = new int[RANDOM_MOVES];
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(225);
+        for(int i = 0; i < moves.length; i++){
+            moves[i] = random.nextInt(RubiksCube.N_MOVES);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCRAMBLE_MOVES)
+    public long applyMoves() {
+        cube.applyMoves(SCRAMBLE);
+        return cube.cornerState();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RANDOM_MOVES)
+    public long applyMove() {
+        for(int move: moves){
+            cube.applyMove(move);
+        }
+        return cube.edgeState();
+    }
+}
@@ -0,0 +1,50 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Turning a net read from a testcase into the packed cube and back
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+    @Param("testcases/scramble10.txt")
+    public String file;
+
+    private char[] net;
+    private final RubiksCube cube = new RubiksCube();
+
+    @Setup
+    public void setup() throws IOException {
+        net = RubiksCube.readNet(file);
+        CubieMapper.parse(net, cube);
+    }
+
+    @Benchmark
+    public long parse() {
+        CubieMapper.parse(net, cube);
+        return cube.cornerState();
+    }
+
+    @Benchmark
+    public char[] toNet() {
+        return CubieMapper.toNet(cube, net);
+    }
+}
@@ -0,0 +1,120 @@
+package rubikscube;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end solves of the testcase scrambles, in solves per second. The
+ * nodes counter reports nodes expanded per second next to it.
+ *
+ * Solvers run without a quick answer so only the search is measured, the
+ * two-phase solver until it has 20 moves or less. The bidirectional solver
+ * runs without a fallback, so scrambles that do not fit its memory budget
+ * finish with no solution. IDA* needs pattern databases for the deeper
+ * scrambles:
+ *   -p solver=IDAStarSolver -p databases=dir
+ * and with -p metrics=file appends the SearchMetrics of the last solve of
+ * each iteration to file, one JSON object per line.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SolveBenchmark {
+    @Param({"TwoPhaseSolver", "BidirectionalSolver"})
+    public String solver;
+
+    @Param({"scramble01", "scramble02", "scramble03", "scramble04", "scramble05",
+            "scramble06", "scramble07", "scramble08", "scramble09", "scramble10"})
+    public String scramble;
+
+    // Directory of the pattern database files for IDA*, empty for the table-free default heuristic
+    @Param("")
+    public String databases;
+
+    // File for the IDA* search metrics, empty for none
+    @Param("")
+    public String metrics;
+
+    private CubeSolver search;
+    private IDAStarSolver idaStar;
+    private RubiksCube cube;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        switch (solver) {
+            case "TwoPhaseSolver":
+                // Left alone it improves for the whole time limit, so time the first answer of 20 moves or less
+                search = new TwoPhaseSolver(1000, 20);
+                break;
+            case "BidirectionalSolver":
+                BidirectionalSolver bidirectional = new BidirectionalSolver(null,
+                        Math.min(512L << 20, Runtime.getRuntime().maxMemory() / 2));
+                bidirectional.setQuickSolver(null);
+                search = bidirectional;
+                break;
+            case "IDAStarSolver":
+                idaStar = databases.isEmpty() ? new IDAStarSolver()
+                        : new IDAStarSolver(PatternDatabaseHeuristic.load(Paths.get(databases)));
+                search = idaStar;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown solver " + solver);
+        }
+        cube = new RubiksCube("testcases/" + scramble + ".txt");
+    }
+
+    @Benchmark
+    public String solve(Nodes counters) {
+        String solution = search.solve(cube);
+        counters.nodes += nodes();
+        return solution;
+    }
+
+    /**
+     * Nodes expanded by the last solve
+     */
+    private long nodes() {
+        if(search instanceof TwoPhaseSolver){
+            return ((TwoPhaseSolver) search).getNodes();
+        }
+        if(search instanceof BidirectionalSolver){
+            return ((BidirectionalSolver) search).getNodes();
+        }
+        return idaStar.getNodes();
+    }
+
+    @TearDown(Level.Iteration)
+    public void writeMetrics() throws IOException {
+        if(idaStar == null || metrics.isEmpty()){ return; }
+        try(PrintStream out = new PrintStream(new FileOutputStream(metrics, true))){
+            out.println("{\"solve\":\"" + solver + "/" + scramble + "\",\"metrics\":" + idaStar.getMetrics().toJson() + "}");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package rubikscube;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cold start: the time a fresh JVM spends building the static tables of a
+ * class when it is first used, including the tables it depends on. Every
+ * measurement is the first and only use in its own fork.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+@State(Scope.Benchmark)
+public class TableBuildBenchmark {
+    @Param({"Coordinates", "SymCoordinates", "TwoPhaseSolver", "CubieDistanceHeuristic", "SolutionOptimizer"})
+    public String table;
+
+    @Benchmark
+    public Class<?> build() throws ClassNotFoundException {
+        return Class.forName("rubikscube." + table);
+    }
+}
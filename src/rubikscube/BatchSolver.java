@@ -0,0 +1,261 @@
+package rubikscube;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Solves many cube files in one JVM, so startup, table building and JIT
+ * warm up are paid once instead of per cube.
+ *
+ * Cubes are solved on a fixed pool of workers, each with its own
+ * TwoPhaseSolver. At most a few cubes per worker are queued at a time, so
+ * huge inputs are streamed instead of held in memory. On a CubeFile nothing
+ * is queued: each worker claims the next record index and reads it into its
+ * own reused cube. Every cube produces one tab separated line as soon as it
+ * is done (so lines are not in input order):
+ *   file  status  length  nodes  millis  solution
+ * status is OK, TIMEOUT (no solution within the time limit) or ERROR, in which
+ * case the last field is the error message. length and nodes are -1 when
+ * unknown. Every solution is replayed and shortened by SolutionOptimizer
+ * before it is printed.
+ */
+public class BatchSolver {
+    public static final String HEADER = "file\tstatus\tlength\tnodes\tmillis\tsolution";
+
+    // Queued cubes per worker, enough to keep every worker busy
+    private static final int QUEUE_PER_WORKER = 4;
+
+    private final int workers;
+    private final PrintStream out;
+
+    private final ThreadLocal<TwoPhaseSolver> solvers;
+    private SolutionCache cache;
+
+    /**
+     * @param workers number of threads solving in parallel
+     * @param timeLimit milliseconds each cube may take, see TwoPhaseSolver
+     * @param out where result lines are written
+     */
+    public BatchSolver(int workers, long timeLimit, PrintStream out) {
+        if(workers < 1){
+            throw new IllegalArgumentException("Need at least one worker");
+        }
+        this.workers = workers;
+        this.out = out;
+        this.solvers = ThreadLocal.withInitial(() -> new TwoPhaseSolver(timeLimit, 0));
+    }
+
+    /**
+     * Answer repeated and symmetric cubes from cache, and add new solutions to it.
+     * A cached answer is reported with 0 nodes
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Solve every cube of source and return once all lines are written.
+     * source is a directory (all *.txt files in it), a glob such as
+     * "testcases/scramble*.txt", "-" for one file name per line on stdin, or
+     * a CubeFile whose records are labelled file#index
+     * @return the number of cubes that were not solved
+     */
+    public int run(String source) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        Semaphore slots = new Semaphore(workers * QUEUE_PER_WORKER);
+        AtomicInteger failures = new AtomicInteger();
+        out.println(HEADER);
+
+        try {
+            if(source.endsWith(CubeFile.EXTENSION)){
+                CubeFile cubes = CubeFile.open(Paths.get(source));
+                AtomicLong next = new AtomicLong();
+                for(int w = 0; w < workers; w++){
+                    pool.execute(() -> solveRecords(source, cubes, next, failures));
+                }
+            } else {
+                forEachFile(source, file -> submit(pool, slots, failures, file.toString(),
+                        index -> new RubiksCube(file.toString())));
+            }
+        }
+        finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        out.flush();
+        return failures.get();
+    }
+
+    private interface CubeLoader {
+        RubiksCube load(long index) throws IOException;
+    }
+
+    /**
+     * Worker loop for a CubeFile: claim the next record index and solve it,
+     * reading every record into the same cube
+     */
+    private void solveRecords(String source, CubeFile cubes, AtomicLong next, AtomicInteger failures) {
+        RubiksCube cube = new RubiksCube();
+        CubeLoader loader = index -> {
+            cubes.read(index, cube);
+            return cube;
+        };
+        for(long i = next.getAndIncrement(); i < cubes.size(); i = next.getAndIncrement()){
+            if(!solve(source, i, loader)){
+                failures.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Wait for a free queue slot, then hand the cube to a worker
+     */
+    private void submit(ExecutorService pool, Semaphore slots, AtomicInteger failures, String label, CubeLoader loader) {
+        slots.acquireUninterruptibly();
+        pool.execute(() -> {
+            try {
+                if(!solve(label, -1, loader)){
+                    failures.incrementAndGet();
+                }
+            }
+            finally {
+                slots.release();
+            }
+        });
+    }
+
+    /**
+     * Load and solve one cube and print its line, labelled name#index for a
+     * record and name for a file (index -1)
+     * @return true if a solution was found
+     */
+    private boolean solve(String name, long index, CubeLoader loader) {
+        long start = System.nanoTime();
+        String status, result;
+        int length = -1;
+        long nodes = -1;
+        try {
+            RubiksCube cube = loader.load(index);
+            result = cache == null ? null : cache.get(cube);
+            if(result != null){
+                nodes = 0;
+            } else {
+                TwoPhaseSolver solver = solvers.get();
+                result = solver.solve(cube);
+                nodes = solver.getNodes();
+                if(result != null && cache != null){
+                    cache.put(cube, result);
+                }
+            }
+            String checked = result == null ? null : SolutionOptimizer.check(cube, result);
+            if(result == null){
+                status = "TIMEOUT";
+                result = "";
+            } else if(checked == null){
+                status = "ERROR";
+                result = "Solution does not solve the cube: " + result;
+            } else {
+                result = checked;
+                status = "OK";
+                length = result.isEmpty() ? 0 : result.split(" ").length;
+            }
+        }
+        catch (IOException | IncorrectFormatException e) {
+            status = "ERROR";
+            result = String.valueOf(e.getMessage()).replace('\t', ' ').replace('\n', ' ');
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        String label = index < 0 ? name : name + "#" + index;
+        String line = label + "\t" + status + "\t" + length + "\t" + nodes + "\t" + millis + "\t" + result;
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+        return status.equals("OK");
+    }
+
+    interface FileConsumer {
+        void accept(Path file) throws IOException;
+    }
+
+    /**
+     * Call action for every file of source, see run
+     */
+    static void forEachFile(String source, FileConsumer action) throws IOException {
+        if(source.equals("-")){
+            BufferedReader input = new BufferedReader(new InputStreamReader(System.in));
+            String line;
+            while((line = input.readLine()) != null){
+                if(!line.trim().isEmpty()){
+                    action.accept(Paths.get(line.trim()));
+                }
+            }
+            return;
+        }
+
+        Path path = Paths.get(source);
+        if(Files.isDirectory(path)){
+            for(Path file: sorted(path, "*.txt")){
+                action.accept(file);
+            }
+            return;
+        }
+
+        // A glob: walk from the deepest directory without wildcards
+        int wildcard = indexOfWildcard(source);
+        if(wildcard < 0){
+            action.accept(path);
+            return;
+        }
+        int slash = source.lastIndexOf('/', wildcard);
+        Path base = slash < 0 ? Paths.get(".") : Paths.get(source.substring(0, slash + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + source);
+        List<Path> files = new ArrayList<>();
+        try(Stream<Path> walk = Files.walk(base)){
+            walk.filter(Files::isRegularFile)
+                    .filter(file -> matcher.matches(slash < 0 ? base.relativize(file) : file))
+                    .forEach(files::add);
+        }
+        files.sort(null);
+        for(Path file: files){
+            action.accept(file);
+        }
+    }
+
+    private static List<Path> sorted(Path dir, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)){
+            for(Path file: stream){
+                files.add(file);
+            }
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static int indexOfWildcard(String pattern) {
+        for(int i = 0; i < pattern.length(); i++){
+            char c = pattern.charAt(i);
+            if(c == '*' || c == '?' || c == '[' || c == '{'){ return i; }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,416 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Optimal solver for short scrambles: a breadth first search from the
+ * scrambled cube and one from the solved cube, one layer at a time on the
+ * side with the smaller frontier, until a new state of one side has already
+ * been seen by the other.
+ *
+ * Every pair of states up to the current depth of each side has been compared
+ * before a layer is added, so the first meeting state gives a shortest
+ * solution. A scramble of n moves costs about two searches of n/2 moves
+ * instead of one of n. The states around the solved cube are the same for
+ * every scramble, so that side is kept and grown across solves, up to half
+ * the memory budget.
+ *
+ * When the next layer would not fit in the memory budget the cube is handed
+ * to the fallback solver instead. A deadline is checked between layers and
+ * while either side grows; a layer of the kept side that the deadline cuts
+ * short is removed again, so that side only ever holds complete layers.
+ * Like IDAStarSolver, a quick solver's answer is computed first:
+ * it is returned when the deadline expires, and as soon as the two depths
+ * show that nothing shorter exists. Not thread safe, use one instance per
+ * thread.
+ */
+public class BidirectionalSolver implements CubeSolver {
+    // Moves of a face can be combined, so one never follows another (~15 successors per state)
+    private static final int SUCCESSORS = RubiksCube.N_MOVES - 3;
+    // How many states to generate between clock checks
+    private static final int CLOCK_INTERVAL = 4096;
+
+    private final CubeSolver fallback;
+    private final long memoryBudget;
+    private CubeSolver quickSolver = TwoPhaseSolver.quick();
+
+    private final Side forward = new Side();
+    private final Side backward = new Side();
+    private final RubiksCube base = new RubiksCube();
+    private final RubiksCube scratch = new RubiksCube();
+    private long nodes;
+    private boolean usedFallback;
+
+    /**
+     * IDA* on the default heuristic as fallback, memory budget of half the
+     * maximum heap, at most 512 MiB. The fallback has no quick solver of its
+     * own, this solver's quick answer covers it
+     */
+    public BidirectionalSolver(){
+        this(new IDAStarSolver(), Math.min(512L << 20, Runtime.getRuntime().maxMemory() / 2));
+    }
+
+    /**
+     * @param fallback solves the cubes whose search would outgrow memoryBudget, e.g. an IDAStarSolver
+     * @param memoryBudget bytes both searches may use together
+     */
+    public BidirectionalSolver(CubeSolver fallback, long memoryBudget){
+        if(memoryBudget <= 0){
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        this.fallback = fallback;
+        this.memoryBudget = memoryBudget;
+        backward.reset(new RubiksCube());
+    }
+
+    /**
+     * Solve with quick first, by default TwoPhaseSolver.quick(), see the class
+     * comment. null to turn it off, then a solve that runs out of time returns null
+     */
+    public void setQuickSolver(CubeSolver quick){
+        this.quickSolver = quick;
+    }
+
+    @Override
+    public String solve(RubiksCube cube){
+        return solve(cube, Deadline.none());
+    }
+
+    /**
+     * @return an optimal solution, or when deadline expires first the quick
+     * solver's solution, null without one
+     */
+    @Override
+    public String solve(RubiksCube cube, Deadline deadline){
+        if(cube == null){ return null; }
+        nodes = 0;
+        usedFallback = false;
+
+        forward.reset(cube);
+        long[] meeting = new long[2];
+        if(backward.contains(cube.cornerState(), cube.edgeState())){
+            meeting[0] = cube.cornerState();
+            meeting[1] = cube.edgeState();
+            return solution(meeting);
+        }
+        String quick = quickSolver == null ? null : quickSolver.solve(cube, deadline);
+        int quickLength = quick == null ? Integer.MAX_VALUE : RubiksCube.parseMoves(quick).length;
+
+        while(true){
+            if(deadline.expired()){ return quick; }
+            // Every solution of up to both depths together would have met by now
+            if(forward.depth + backward.depth + 1 >= quickLength){ return quick; }
+            // Backward layers are kept, so growing that side pays off on later solves too
+            boolean backwardFits = backward.bytesAfterExpand() <= memoryBudget / 2
+                    && forward.bytes() + backward.bytesAfterExpand() <= memoryBudget;
+            boolean forwardFits = forward.bytesAfterExpand() + backward.bytes() <= memoryBudget;
+            boolean expandForward;
+            if(forwardFits && backwardFits){
+                expandForward = forward.layerSize <= backward.layerSize;
+            } else if(forwardFits || backwardFits){
+                expandForward = forwardFits;
+            } else {
+                usedFallback = true;
+                String solution = fallback == null ? null : fallback.solve(cube, deadline);
+                return solution == null ? quick : solution;
+            }
+
+            boolean met = expandForward
+                    ? expand(forward, backward, meeting, deadline)
+                    : expand(backward, forward, meeting, deadline);
+            if(met){
+                return solution(meeting);
+            }
+        }
+    }
+
+    /**
+     * Add the next layer to side, or part of it if deadline expires
+     * @param meeting set to the first new state other has seen
+     * @return true if the searches met
+     */
+    private boolean expand(Side side, Side other, long[] meeting, Deadline deadline){
+        side.reserve(side.nextLayerBound());
+        long[] layer = side.layer;
+        int count = side.layerSize;
+        boolean met = false;
+
+        for(int i = 0; i < count && !met; i++){
+            long slot = layer[2 * i];
+            int last = Side.move(slot);
+            base.setState(slot & Side.CORNER_MASK, layer[2 * i + 1]);
+            for(int m = 0; m < RubiksCube.N_MOVES; m++){
+                if(last >= 0 && m / 3 == last / 3){ continue; }
+                scratch.copyFrom(base);
+                scratch.applyMove(m);
+                if(++nodes % CLOCK_INTERVAL == 0 && deadline.expired()){
+                    // The kept backward side must only hold complete layers
+                    if(side == backward){
+                        side.dropNextLayer();
+                    }
+                    return false;
+                }
+                long corners = scratch.cornerState(), edges = scratch.edgeState();
+                if(!side.add(corners, edges, m)){ continue; }
+                if(other.contains(corners, edges)){
+                    meeting[0] = corners;
+                    meeting[1] = edges;
+                    met = true;
+                    break;
+                }
+            }
+        }
+        // A layer cut short by the meeting is never expanded again, except on
+        // the kept backward side, which is rebuilt so its layers stay complete
+        if(met && side == backward){
+            finishLayer(side, layer, count);
+        }
+        side.nextLayer();
+        return met;
+    }
+
+    /**
+     * Expand every state of layer into side, for a layer whose expansion was
+     * interrupted; states already added are skipped by add
+     */
+    private void finishLayer(Side side, long[] layer, int count){
+        for(int i = 0; i < count; i++){
+            long slot = layer[2 * i];
+            int last = Side.move(slot);
+            base.setState(slot & Side.CORNER_MASK, layer[2 * i + 1]);
+            for(int m = 0; m < RubiksCube.N_MOVES; m++){
+                if(last >= 0 && m / 3 == last / 3){ continue; }
+                scratch.copyFrom(base);
+                scratch.applyMove(m);
+                side.add(scratch.cornerState(), scratch.edgeState(), m);
+            }
+        }
+    }
+
+    /**
+     * Moves from the scramble to the meeting state, then from there back to solved
+     */
+    private String solution(long[] meeting){
+        int[] head = forward.pathTo(meeting[0], meeting[1], scratch);
+        int[] tail = backward.pathTo(meeting[0], meeting[1], scratch);
+        int[] moves = Arrays.copyOf(head, head.length + tail.length);
+        // tail leads from solved to the meeting state, walk it backwards
+        for(int i = 0; i < tail.length; i++){
+            moves[head.length + i] = RubiksCube.inverse(tail[tail.length - 1 - i]);
+        }
+        return RubiksCube.movesToString(moves, moves.length);
+    }
+
+    /**
+     * States generated by the last solve, on both sides
+     */
+    public long getNodes(){
+        return nodes;
+    }
+
+    /**
+     * @return true if the last solve was handed to the fallback solver
+     */
+    public boolean usedFallback(){
+        return usedFallback;
+    }
+
+    /**
+     * One search: every state seen so far, with the move that first reached it,
+     * in an open addressing table keyed by the packed state, and the states of
+     * the last complete layer.
+     *
+     * A slot is two longs, the packed corners and edges. Corner lanes use the
+     * low 40 bits, the move that reached the state plus one is kept above them;
+     * a slot of 0 is empty, since no valid corner state packs to 0.
+     */
+    static final class Side {
+        static final long CORNER_MASK = (1L << 40) - 1;
+        private static final int MOVE_SHIFT = 40;
+        private static final int MIN_CAPACITY = 1 << 10;
+
+        private long[] table = new long[2 * MIN_CAPACITY];
+        private int mask = MIN_CAPACITY - 1;
+        private int size;
+
+        // Slots of the last complete layer, and of the one being built
+        long[] layer = new long[64];
+        int layerSize;
+        private long[] next = new long[64];
+        private int nextSize;
+        // Moves from the root to the last complete layer
+        int depth;
+
+        static int move(long slot){
+            return (int) (slot >>> MOVE_SHIFT) - 1;
+        }
+
+        /**
+         * Forget everything but root
+         */
+        void reset(RubiksCube root){
+            Arrays.fill(table, 0);
+            size = 0;
+            layerSize = 0;
+            nextSize = 0;
+            depth = 0;
+            add(root.cornerState(), root.edgeState(), -1);
+            nextLayer();
+            depth = 0;
+        }
+
+        private int slot(long corners, long edges){
+            long h = corners * 0x9E3779B97F4A7C15L ^ edges * 0xC2B2AE3D27D4EB4FL;
+            return (int) (h ^ h >>> 29) & mask;
+        }
+
+        boolean contains(long corners, long edges){
+            return find(corners, edges) >= 0;
+        }
+
+        /**
+         * @return the table position of the state, -1 if it has not been seen
+         */
+        private int find(long corners, long edges){
+            for(int i = slot(corners, edges); ; i = (i + 1) & mask){
+                long c = table[2 * i];
+                if(c == 0){ return -1; }
+                if((c & CORNER_MASK) == corners && table[2 * i + 1] == edges){ return i; }
+            }
+        }
+
+        /**
+         * Add a state reached by move to the layer being built
+         * @return false if the state has been seen before
+         */
+        boolean add(long corners, long edges, int move){
+            int i = slot(corners, edges);
+            for(long c; (c = table[2 * i]) != 0; i = (i + 1) & mask){
+                if((c & CORNER_MASK) == corners && table[2 * i + 1] == edges){ return false; }
+            }
+            long tagged = corners | (long) (move + 1) << MOVE_SHIFT;
+            table[2 * i] = tagged;
+            table[2 * i + 1] = edges;
+            size++;
+            if(2 * nextSize + 2 > next.length){
+                next = Arrays.copyOf(next, next.length * 2);
+            }
+            next[2 * nextSize] = tagged;
+            next[2 * nextSize + 1] = edges;
+            nextSize++;
+            return true;
+        }
+
+        /**
+         * Forget the states of the layer being built, as if it was never started
+         */
+        void dropNextLayer(){
+            for(int k = 0; k < nextSize; k++){
+                remove(find(next[2 * k] & CORNER_MASK, next[2 * k + 1]));
+            }
+            nextSize = 0;
+        }
+
+        /**
+         * Empty table position i, moving later states of its probe run back so
+         * that find still reaches them
+         */
+        private void remove(int i){
+            size--;
+            for(int j = (i + 1) & mask; ; j = (j + 1) & mask){
+                long c = table[2 * j];
+                if(c == 0){ break; }
+                // A state may move back to i unless its home slot lies between i and j
+                int home = slot(c & CORNER_MASK, table[2 * j + 1]);
+                if(i <= j ? i < home && home <= j : i < home || home <= j){ continue; }
+                table[2 * i] = c;
+                table[2 * i + 1] = table[2 * j + 1];
+                i = j;
+            }
+            table[2 * i] = 0;
+            table[2 * i + 1] = 0;
+        }
+
+        /**
+         * Grow the table so that extra more states keep it at most 3/4 full
+         */
+        void reserve(long extra){
+            long capacity = mask + 1L;
+            while((size + extra) * 4 > capacity * 3){
+                capacity *= 2;
+            }
+            if(capacity == mask + 1L){ return; }
+            if(capacity > 1 << 29){
+                throw new OutOfMemoryError("Bidirectional search table too large");
+            }
+            long[] old = table;
+            table = new long[(int) capacity * 2];
+            mask = (int) capacity - 1;
+            for(int j = 0; j < old.length; j += 2){
+                if(old[j] == 0){ continue; }
+                int i = slot(old[j] & CORNER_MASK, old[j + 1]);
+                while(table[2 * i] != 0){
+                    i = (i + 1) & mask;
+                }
+                table[2 * i] = old[j];
+                table[2 * i + 1] = old[j + 1];
+            }
+        }
+
+        /**
+         * The layer being built becomes the last complete one
+         */
+        void nextLayer(){
+            long[] swap = layer;
+            layer = next;
+            layerSize = nextSize;
+            next = swap;
+            nextSize = 0;
+            depth++;
+        }
+
+        long bytes(){
+            return (long) (table.length + layer.length + next.length) * Long.BYTES;
+        }
+
+        /**
+         * Upper bound on the size of the next layer, the root has all 18 successors
+         */
+        long nextLayerBound(){
+            return layerSize * (long) SUCCESSORS + 3;
+        }
+
+        /**
+         * Upper bound of bytes() once the next layer is added
+         */
+        long bytesAfterExpand(){
+            long extra = nextLayerBound();
+            long capacity = mask + 1L;
+            while((size + extra) * 4 > capacity * 3){
+                capacity *= 2;
+            }
+            return (capacity * 2 + layer.length + Math.max(next.length, 2 * extra)) * Long.BYTES;
+        }
+
+        /**
+         * Moves from the root of this side to a state it has seen
+         */
+        int[] pathTo(long corners, long edges, RubiksCube scratch){
+            int[] moves = new int[depth];
+            int length = 0;
+            scratch.setState(corners, edges);
+            while(true){
+                int move = move(table[2 * find(scratch.cornerState(), scratch.edgeState())]);
+                if(move < 0){ break; }
+                moves[length++] = move;
+                scratch.applyMove(RubiksCube.inverse(move));
+            }
+            // Collected from the state back to the root
+            int[] path = new int[length];
+            for(int i = 0; i < length; i++){
+                path[i] = moves[length - 1 - i];
+            }
+            return path;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package rubikscube;
+
+/**
+ * Answers from a SolutionCache when it can, otherwise asks solver and
+ * remembers the answer
+ */
+public class CachingSolver implements CubeSolver {
+    private final CubeSolver solver;
+    private final SolutionCache cache;
+
+    public CachingSolver(CubeSolver solver, SolutionCache cache) {
+        this.solver = solver;
+        this.cache = cache;
+    }
+
+    @Override
+    public String solve(RubiksCube cube) {
+        return solve(cube, Deadline.none());
+    }
+
+    @Override
+    public String solve(RubiksCube cube, Deadline deadline) {
+        if(cube == null){ return null; }
+        String solution = cache.get(cube);
+        if(solution == null){
+            solution = solver.solve(cube, deadline);
+            if(solution != null){
+                cache.put(cube, solution);
+            }
+        }
+        return solution;
+    }
+
+    public SolutionCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,289 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Coordinate view of the cubie model: small integers that each describe one
+ * aspect of the cube (corner twist, edge flip, corner permutation, which
+ * positions hold the 4 middle slice edges).
+ * Every coordinate has a move table coord x move -> coord, so applying a move
+ * during search is a single array lookup and nodes are plain ints.
+ *
+ * Moves are indexed like RubiksCube.applyMove: F, F2, F', B, B2, B', R, ... D'
+ */
+public class Coordinates {
+    public static final int N_MOVES = RubiksCube.N_MOVES;
+
+    public static final int N_TWIST = 2187;  // 3^7
+    public static final int N_FLIP = 2048;   // 2^11
+    public static final int N_CORNER_PERM = 40320; // 8!
+    public static final int N_SLICE = 495;   // 12 choose 4
+
+    // Phase 2 coordinates, only meaningful once the slice edges are in the slice
+    public static final int N_UD_EDGE_PERM = 40320; // 8!, edges 0-7
+    public static final int N_SLICE_PERM = 24;      // 4!, edges 8-11
+
+    // Pieces 8-11 (FL, FR, BL, BR) are the edges of the middle slice between U and D
+    private static final int FIRST_SLICE_EDGE = 8;
+
+    // Move tables, TABLE[coord][move] is the coordinate after applying move
+    public static final int[][] TWIST_MOVE = new int[N_TWIST][N_MOVES];
+    public static final int[][] FLIP_MOVE = new int[N_FLIP][N_MOVES];
+    public static final int[][] CORNER_PERM_MOVE = new int[N_CORNER_PERM][N_MOVES];
+    public static final int[][] SLICE_MOVE = new int[N_SLICE][N_MOVES];
+    // -1 for moves that take an edge out of its layer (quarter turns of F, B, R, L)
+    public static final int[][] UD_EDGE_PERM_MOVE = new int[N_UD_EDGE_PERM][N_MOVES];
+    public static final int[][] SLICE_PERM_MOVE = new int[N_SLICE_PERM][N_MOVES];
+
+    // Binomial coefficients up to 12 choose 12
+    private static final int[][] CHOOSE = new int[13][13];
+
+    static {
+        for(int n = 0; n <= 12; n++){
+            CHOOSE[n][0] = 1;
+            for(int k = 1; k <= n; k++){
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + (k <= n - 1 ? CHOOSE[n - 1][k] : 0);
+            }
+        }
+
+        int[] cp = new int[8], co = new int[8];
+        int[] ep = new int[12], eo = new int[12];
+        RubiksCube cube = new RubiksCube();
+
+        for(int i = 0; i < N_TWIST; i++){
+            identity(cp);
+            setTwist(co, i);
+            cube.setCorners(cp, co);
+            fillRow(cube, TWIST_MOVE[i], Kind.TWIST);
+        }
+        for(int i = 0; i < N_CORNER_PERM; i++){
+            setCornerPerm(cp, i);
+            Arrays.fill(co, 0);
+            cube.setCorners(cp, co);
+            fillRow(cube, CORNER_PERM_MOVE[i], Kind.CORNER_PERM);
+        }
+        identity(cp);
+        Arrays.fill(co, 0);
+        cube.setCorners(cp, co);
+        for(int i = 0; i < N_FLIP; i++){
+            identity(ep);
+            setFlip(eo, i);
+            cube.setEdges(ep, eo);
+            fillRow(cube, FLIP_MOVE[i], Kind.FLIP);
+        }
+        for(int i = 0; i < N_SLICE; i++){
+            setSlice(ep, i);
+            Arrays.fill(eo, 0);
+            cube.setEdges(ep, eo);
+            fillRow(cube, SLICE_MOVE[i], Kind.SLICE);
+        }
+        for(int i = 0; i < N_UD_EDGE_PERM; i++){
+            identity(ep);
+            setPerm(ep, i, 8, 0);
+            cube.setEdges(ep, eo);
+            fillRow(cube, UD_EDGE_PERM_MOVE[i], Kind.UD_EDGE_PERM);
+        }
+        for(int i = 0; i < N_SLICE_PERM; i++){
+            identity(ep);
+            setPerm(ep, i, 4, FIRST_SLICE_EDGE);
+            cube.setEdges(ep, eo);
+            fillRow(cube, SLICE_PERM_MOVE[i], Kind.SLICE_PERM);
+        }
+    }
+
+    private enum Kind { TWIST, FLIP, CORNER_PERM, SLICE, UD_EDGE_PERM, SLICE_PERM }
+
+    /**
+     * Apply each move to a copy of cube and record the coordinate
+     */
+    private static void fillRow(RubiksCube cube, int[] row, Kind kind){
+        RubiksCube scratch = cube.copy();
+        for(int move = 0; move < N_MOVES; move++){
+            scratch.copyFrom(cube);
+            scratch.applyMove(move);
+            switch (kind) {
+                case TWIST: row[move] = twist(scratch); break;
+                case FLIP: row[move] = flip(scratch); break;
+                case CORNER_PERM: row[move] = cornerPerm(scratch); break;
+                case SLICE: row[move] = slice(scratch); break;
+                case UD_EDGE_PERM: row[move] = isPhase2Move(move) ? udEdgePerm(scratch) : -1; break;
+                case SLICE_PERM: row[move] = isPhase2Move(move) ? slicePerm(scratch) : -1; break;
+            }
+        }
+    }
+
+    /**
+     * @return true for the moves of the subgroup <U, D, R2, L2, F2, B2>, which
+     * keep orientations and the slice coordinate solved
+     */
+    public static boolean isPhase2Move(int move){
+        int face = move / 3;
+        return face == RubiksCube.UP || face == RubiksCube.DOWN || move % 3 == 1;
+    }
+
+    /**
+     * Corner twist: orientations of corners 0-6 as a base 3 number,
+     * the last one follows from the twist sum being 0 mod 3
+     */
+    public static int twist(RubiksCube cube){
+        int twist = 0;
+        for(int i = 0; i < 7; i++){
+            twist = twist * 3 + cube.getCornerOrientation(i);
+        }
+        return twist;
+    }
+
+    /**
+     * Edge flip: orientations of edges 0-10 as a base 2 number,
+     * the last one follows from the flip sum being even
+     */
+    public static int flip(RubiksCube cube){
+        int flip = 0;
+        for(int i = 0; i < 11; i++){
+            flip = flip * 2 + cube.getEdgeOrientation(i);
+        }
+        return flip;
+    }
+
+    /**
+     * Corner permutation as its rank among the 8! orderings (Lehmer code)
+     */
+    public static int cornerPerm(RubiksCube cube){
+        int rank = 0;
+        for(int i = 0; i < 8; i++){
+            int piece = cube.getCornerPiece(i);
+            int smaller = 0;
+            for(int j = i + 1; j < 8; j++){
+                if(cube.getCornerPiece(j) < piece){
+                    smaller++;
+                }
+            }
+            rank = rank * (8 - i) + smaller;
+        }
+        return rank;
+    }
+
+    /**
+     * Permutation of edges 0-7 over positions 0-7 (Lehmer code).
+     * Only valid when the slice coordinate is 0
+     */
+    public static int udEdgePerm(RubiksCube cube){
+        int rank = 0;
+        for(int i = 0; i < 8; i++){
+            int piece = cube.getEdgePiece(i);
+            int smaller = 0;
+            for(int j = i + 1; j < 8; j++){
+                if(cube.getEdgePiece(j) < piece){
+                    smaller++;
+                }
+            }
+            rank = rank * (8 - i) + smaller;
+        }
+        return rank;
+    }
+
+    /**
+     * Permutation of edges 8-11 over positions 8-11 (Lehmer code).
+     * Only valid when the slice coordinate is 0
+     */
+    public static int slicePerm(RubiksCube cube){
+        int rank = 0;
+        for(int i = 8; i < 12; i++){
+            int piece = cube.getEdgePiece(i);
+            int smaller = 0;
+            for(int j = i + 1; j < 12; j++){
+                if(cube.getEdgePiece(j) < piece){
+                    smaller++;
+                }
+            }
+            rank = rank * (12 - i) + smaller;
+        }
+        return rank;
+    }
+
+    /**
+     * Slice coordinate: which 4 of the 12 edge positions hold a slice edge,
+     * ignoring their order. 0 when they are all home
+     */
+    public static int slice(RubiksCube cube){
+        int slice = 0, found = 0;
+        for(int j = 11; j >= 0; j--){
+            if(cube.getEdgePiece(j) >= FIRST_SLICE_EDGE){
+                found++;
+                slice += CHOOSE[11 - j][found];
+            }
+        }
+        return slice;
+    }
+
+    static void identity(int[] perm){
+        for(int i = 0; i < perm.length; i++){
+            perm[i] = i;
+        }
+    }
+
+    static void setTwist(int[] co, int twist){
+        int sum = 0;
+        for(int i = 6; i >= 0; i--){
+            co[i] = twist % 3;
+            sum += co[i];
+            twist /= 3;
+        }
+        co[7] = (3 - sum % 3) % 3;
+    }
+
+    static void setFlip(int[] eo, int flip){
+        int sum = 0;
+        for(int i = 10; i >= 0; i--){
+            eo[i] = flip & 1;
+            sum += eo[i];
+            flip >>= 1;
+        }
+        eo[11] = sum & 1;
+    }
+
+    static void setCornerPerm(int[] cp, int rank){
+        setPerm(cp, rank, 8, 0);
+    }
+
+    /**
+     * Decode a Lehmer code into perm[offset .. offset + n - 1], using pieces offset .. offset + n - 1
+     */
+    static void setPerm(int[] perm, int rank, int n, int offset){
+        // Decode the Lehmer digits, last position first
+        int[] digits = new int[n];
+        for(int i = n - 1; i >= 0; i--){
+            digits[i] = rank % (n - i);
+            rank /= n - i;
+        }
+        boolean[] used = new boolean[n];
+        for(int i = 0; i < n; i++){
+            int skip = digits[i];
+            for(int piece = 0; piece < n; piece++){
+                if(!used[piece] && skip-- == 0){
+                    perm[offset + i] = offset + piece;
+                    used[piece] = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Place the slice edges (in home order) on the positions encoded by slice,
+     * the other positions get the remaining edges in home order
+     */
+    static void setSlice(int[] ep, int slice){
+        int left = 4;
+        int nextSlice = FIRST_SLICE_EDGE, nextOther = 0;
+        for(int j = 0; j < 12; j++){
+            if(left > 0 && slice >= CHOOSE[11 - j][left]){
+                slice -= CHOOSE[11 - j][left];
+                left--;
+                ep[j] = nextSlice++;
+            } else {
+                ep[j] = nextOther++;
+            }
+        }
+    }
+}
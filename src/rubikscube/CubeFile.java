@@ -0,0 +1,209 @@
+package rubikscube;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary file of many cubes, for bulk input and output.
+ *
+ * Layout (big endian), a 32 byte header followed by fixed size records:
+ *   0  magic "RCCB"
+ *   4  format version
+ *   8  record size in bytes (16)
+ *  12  reserved, 0
+ *  16  number of records
+ *  24  reserved, 0
+ * Each record is the cube's packed corner lanes followed by its packed edge
+ * lanes, one long each, exactly as RubiksCube keeps them in memory.
+ *
+ * Files are memory mapped, for reading in segments of up to 1 GiB, for
+ * writing in 1 MiB windows; reading or writing a record copies two longs and
+ * allocates nothing.
+ */
+public class CubeFile {
+    public static final int VERSION = 1;
+    public static final String EXTENSION = ".cubes";
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 16;
+    private static final int MAGIC = 0x52434342; // "RCCB"
+
+    // Records per mapped segment when reading, a power of two, and per window when writing
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_RECORDS = 1L << SEGMENT_SHIFT;
+    private static final long WINDOW_RECORDS = 1L << 16;
+
+    private final Path file;
+    private final long records;
+    private final MappedByteBuffer[] segments;
+
+    private CubeFile(Path file, long records, MappedByteBuffer[] segments) {
+        this.file = file;
+        this.records = records;
+        this.segments = segments;
+    }
+
+    /**
+     * Memory map a cube file for reading
+     * @throws IncorrectFormatException if the file is not a cube file this version understands
+     */
+    public static CubeFile open(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            while(header.hasRemaining()){
+                if(channel.read(header) < 0){
+                    throw new IncorrectFormatException("Cube file header truncated: " + file);
+                }
+            }
+            header.flip();
+            if(header.getInt() != MAGIC){
+                throw new IncorrectFormatException("Not a cube file: " + file);
+            }
+            int version = header.getInt();
+            if(version != VERSION){
+                throw new IncorrectFormatException("Unsupported cube file version " + version + ": " + file);
+            }
+            if(header.getInt() != RECORD_SIZE){
+                throw new IncorrectFormatException("Unsupported cube record size: " + file);
+            }
+            header.getInt();
+            long records = header.getLong();
+            if(records < 0 || channel.size() != HEADER_SIZE + records * RECORD_SIZE){
+                throw new IncorrectFormatException("Cube file has the wrong length: " + file);
+            }
+
+            // The mappings stay valid after the channel is closed
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((records + SEGMENT_RECORDS - 1) >>> SEGMENT_SHIFT)];
+            for(int i = 0; i < segments.length; i++){
+                long first = (long) i << SEGMENT_SHIFT;
+                long count = Math.min(SEGMENT_RECORDS, records - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * RECORD_SIZE, count * RECORD_SIZE);
+            }
+            return new CubeFile(file, records, segments);
+        }
+    }
+
+    public long size() {
+        return records;
+    }
+
+    public Path getPath() {
+        return file;
+    }
+
+    /**
+     * Overwrite into with record index
+     * @throws IncorrectFormatException if the record is not a solvable cubie
+     * state, see CubieMapper.validate
+     */
+    public void read(long index, RubiksCube into) {
+        if(index < 0 || index >= records){
+            throw new IndexOutOfBoundsException("Record " + index + " of " + records);
+        }
+        ByteBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+        int offset = (int) (index & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+        long corners = segment.getLong(offset), edges = segment.getLong(offset + 8);
+        CubieMapper.validate(corners, edges);
+        into.setState(corners, edges);
+    }
+
+    /**
+     * Appends cubes to a new cube file. The records go to a temporary file
+     * that only replaces file on commit, so readers never see a partial file.
+     * Closing without commit, e.g. when an exception leaves a
+     * try-with-resources block, deletes the temporary file and leaves file as
+     * it was.
+     */
+    public static class Writer implements Closeable {
+        private final Path file;
+        private final Path tmp;
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long records;
+
+        public Writer(Path file) throws IOException {
+            this.file = file;
+            this.tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.windowStart = -WINDOW_RECORDS;
+        }
+
+        public void append(RubiksCube cube) throws IOException {
+            if(records - windowStart >= WINDOW_RECORDS){
+                // Mapping past the end grows the file, the unused tail is cut on close
+                windowStart += WINDOW_RECORDS;
+                window = channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_SIZE + windowStart * RECORD_SIZE, WINDOW_RECORDS * RECORD_SIZE);
+            }
+            int offset = (int) (records - windowStart) * RECORD_SIZE;
+            window.putLong(offset, cube.cornerState());
+            window.putLong(offset + 8, cube.edgeState());
+            records++;
+        }
+
+        public long size() {
+            return records;
+        }
+
+        /**
+         * Write the header and move the finished file into place. Nothing can
+         * be appended afterwards
+         */
+        public void commit() throws IOException {
+            if(!channel.isOpen()){
+                throw new IllegalStateException("Cube file writer already closed: " + file);
+            }
+            try {
+                if(window != null){
+                    window.force();
+                    window = null;
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.putInt(RECORD_SIZE);
+                header.putInt(0);
+                header.putLong(records);
+                header.putLong(0);
+                header.flip();
+                long position = 0;
+                while(header.hasRemaining()){
+                    position += channel.write(header, position);
+                }
+                channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+                channel.force(false);
+            }
+            catch (IOException e) {
+                close();
+                throw e;
+            }
+            channel.close();
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * Without a commit before, abort: drop the temporary file
+         */
+        @Override
+        public void close() throws IOException {
+            if(!channel.isOpen()){ return; }
+            window = null;
+            try {
+                channel.close();
+            }
+            finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+}
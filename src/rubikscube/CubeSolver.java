@@ -0,0 +1,22 @@
+package rubikscube;
+
+/**
+ * Common entry point of the solvers
+ */
+public interface CubeSolver {
+    /**
+     * @param cube scrambled cube, left unchanged
+     * @return moves that solve cube, or null if none was found in time
+     */
+    String solve(RubiksCube cube);
+
+    /**
+     * Solve, stopping once deadline expires or is cancelled. Solvers that keep
+     * improving their answer return the best one found by then; the default
+     * ignores the deadline
+     * @return moves that solve cube, or null if none was found in time
+     */
+    default String solve(RubiksCube cube, Deadline deadline) {
+        return solve(cube);
+    }
+}
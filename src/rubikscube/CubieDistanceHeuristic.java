@@ -0,0 +1,264 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Admissible estimate that needs no pattern database files: the largest of
+ * - the exact number of moves to fix the corner twist alone
+ * - the exact number of moves to fix the edge flip alone
+ * - the moves each corner needs to get home, twisted right, summed and
+ *   divided by 4 (a move carries 4 corners one step each), rounded up
+ * - the same for the edges
+ * Each bound is read from a table of a few KB that breadth first search
+ * builds in milliseconds when the class loads.
+ *
+ * Evaluated incrementally, the per cubie distances and orientation
+ * coordinates are sums over positions, so a move only updates the terms of
+ * the 4 corners and 4 edges it turned, and undoing it restores the sums.
+ */
+public class CubieDistanceHeuristic implements Heuristic {
+    // Moves to solve each twist and flip coordinate, as in Coordinates.twist and Coordinates.flip
+    private static final byte[] TWIST_DISTANCE = new byte[Coordinates.N_TWIST];
+    private static final byte[] FLIP_DISTANCE = new byte[Coordinates.N_FLIP];
+    // [pos << 5 | lane] moves to take the cubie at pos home with orientation 0
+    private static final byte[] CORNER_DISTANCE = new byte[8 << 5];
+    private static final byte[] EDGE_DISTANCE = new byte[12 << 5];
+    // Positions each move turns, and each position's place value in the twist and flip
+    private static final int[][] CORNERS_MOVED = new int[RubiksCube.N_MOVES][4];
+    private static final int[][] EDGES_MOVED = new int[RubiksCube.N_MOVES][4];
+    private static final int[] TWIST_WEIGHT = {729, 243, 81, 27, 9, 3, 1, 0};
+    private static final int[] FLIP_WEIGHT = {1024, 512, 256, 128, 64, 32, 16, 8, 4, 2, 1, 0};
+
+    static {
+        RubiksCube solved = new RubiksCube();
+        RubiksCube cube = new RubiksCube();
+
+        // Where one move takes each cubie, read off the solved cube: the piece
+        // now at pos came from its home and picked up the orientation shown
+        int[][] cornerFrom = new int[RubiksCube.N_MOVES][8], cornerTwist = new int[RubiksCube.N_MOVES][8];
+        int[][] edgeFrom = new int[RubiksCube.N_MOVES][12], edgeFlip = new int[RubiksCube.N_MOVES][12];
+        for(int move = 0; move < RubiksCube.N_MOVES; move++){
+            cube.copyFrom(solved);
+            cube.applyMove(move);
+            for(int pos = 0; pos < 8; pos++){
+                cornerFrom[move][pos] = cube.getCornerPiece(pos);
+                cornerTwist[move][pos] = cube.getCornerOrientation(pos);
+            }
+            for(int pos = 0; pos < 12; pos++){
+                edgeFrom[move][pos] = cube.getEdgePiece(pos);
+                edgeFlip[move][pos] = cube.getEdgeOrientation(pos);
+            }
+            for(int pos = 0, n = 0; pos < 8; pos++){
+                if(cornerFrom[move][pos] != pos){ CORNERS_MOVED[move][n++] = pos; }
+            }
+            for(int pos = 0, n = 0; pos < 12; pos++){
+                if(edgeFrom[move][pos] != pos){ EDGES_MOVED[move][n++] = pos; }
+            }
+        }
+
+        for(int piece = 0; piece < 8; piece++){
+            byte[] distance = cubieDistances(piece, 8, 3, cornerFrom, cornerTwist);
+            for(int pos = 0; pos < 8; pos++){
+                for(int ori = 0; ori < 3; ori++){
+                    CORNER_DISTANCE[pos << 5 | piece | ori << 3] = distance[pos * 3 + ori];
+                }
+            }
+        }
+        for(int piece = 0; piece < 12; piece++){
+            byte[] distance = cubieDistances(piece, 12, 2, edgeFrom, edgeFlip);
+            for(int pos = 0; pos < 12; pos++){
+                for(int ori = 0; ori < 2; ori++){
+                    EDGE_DISTANCE[pos << 5 | piece | ori << 4] = distance[pos * 2 + ori];
+                }
+            }
+        }
+
+        // The twist and flip after a move do not depend on the permutation
+        orientationDistances(TWIST_DISTANCE, 8, 3, cornerFrom, cornerTwist);
+        orientationDistances(FLIP_DISTANCE, 12, 2, edgeFrom, edgeFlip);
+    }
+
+    /**
+     * Moves one cubie needs from each pos * orientations + ori to home, ori 0.
+     * Every move's inverse is a move too, so searching outward from home
+     * gives the distances back to it
+     */
+    private static byte[] cubieDistances(int home, int positions, int orientations, int[][] from, int[][] twist) {
+        byte[] distance = new byte[positions * orientations];
+        Arrays.fill(distance, (byte) -1);
+        int[] queue = new int[distance.length];
+        int head = 0, tail = 0;
+        distance[home * orientations] = 0;
+        queue[tail++] = home * orientations;
+        while(head < tail){
+            int state = queue[head++];
+            int pos = state / orientations, ori = state % orientations;
+            for(int move = 0; move < RubiksCube.N_MOVES; move++){
+                for(int to = 0; to < positions; to++){
+                    if(from[move][to] != pos){ continue; }
+                    int next = to * orientations + (ori + twist[move][to]) % orientations;
+                    if(distance[next] < 0){
+                        distance[next] = (byte) (distance[state] + 1);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Breadth first search over an orientation coordinate from 0, the solved
+     * value: the orientations of the first positions - 1 cubies as a base
+     * orientations number, first cubie highest, as Coordinates.twist and
+     * Coordinates.flip count them
+     */
+    private static void orientationDistances(byte[] distance, int positions, int orientations, int[][] from, int[][] twist) {
+        Arrays.fill(distance, (byte) -1);
+        int[] queue = new int[distance.length];
+        int[] ori = new int[positions];
+        int head = 0, tail = 0;
+        distance[0] = 0;
+        queue[tail++] = 0;
+        while(head < tail){
+            int coordinate = queue[head++];
+            int sum = 0;
+            for(int pos = positions - 2, c = coordinate; pos >= 0; pos--, c /= orientations){
+                ori[pos] = c % orientations;
+                sum += ori[pos];
+            }
+            ori[positions - 1] = (orientations - sum % orientations) % orientations;
+
+            for(int move = 0; move < RubiksCube.N_MOVES; move++){
+                int next = 0;
+                for(int to = 0; to < positions - 1; to++){
+                    next = next * orientations + (ori[from[move][to]] + twist[move][to]) % orientations;
+                }
+                if(distance[next] < 0){
+                    distance[next] = (byte) (distance[coordinate] + 1);
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    private static int twist(long corners) {
+        int twist = 0;
+        for(int pos = 0; pos < 7; pos++){
+            twist = twist * 3 + ((int) (corners >>> (pos * 5 + 3)) & 3);
+        }
+        return twist;
+    }
+
+    private static int flip(long edges) {
+        int flip = 0;
+        for(int pos = 0; pos < 11; pos++){
+            flip = flip * 2 + ((int) (edges >>> (pos * 5 + 4)) & 1);
+        }
+        return flip;
+    }
+
+    @Override
+    public int calculate(RubiksCube cube) {
+        long corners = cube.cornerState();
+        long edges = cube.edgeState();
+
+        int cornerMoves = 0;
+        for(long lanes = cube.unsolvedCornerLanes(); lanes != 0; lanes &= lanes - 1){
+            int shift = Long.numberOfTrailingZeros(lanes);
+            cornerMoves += CORNER_DISTANCE[shift / 5 << 5 | (int) (corners >>> shift) & 0x1F];
+        }
+        int edgeMoves = 0;
+        for(long lanes = cube.unsolvedEdgeLanes(); lanes != 0; lanes &= lanes - 1){
+            int shift = Long.numberOfTrailingZeros(lanes);
+            edgeMoves += EDGE_DISTANCE[shift / 5 << 5 | (int) (edges >>> shift) & 0x1F];
+        }
+
+        int h = Math.max((cornerMoves + 3) / 4, (edgeMoves + 3) / 4);
+        h = Math.max(h, TWIST_DISTANCE[twist(corners)]);
+        return Math.max(h, FLIP_DISTANCE[flip(edges)]);
+    }
+
+    @Override
+    public Incremental incremental(RubiksCube cube) {
+        return new Evaluator(cube);
+    }
+
+    /**
+     * The four bounds' sums kept up to date as the cube turns. apply updates
+     * the terms of the turned positions, undo restores the sums saved by the
+     * matching apply
+     */
+    private static final class Evaluator implements Incremental {
+        private final RubiksCube cube;
+        // The state the sums describe
+        private long corners, edges;
+        private int cornerMoves, edgeMoves, twist, flip;
+        // Sums before each applied move, 4 per move
+        private int[] saved = new int[128];
+        private int depth;
+
+        Evaluator(RubiksCube cube) {
+            this.cube = cube;
+            this.corners = cube.cornerState();
+            this.edges = cube.edgeState();
+            for(int pos = 0; pos < 8; pos++){
+                int lane = (int) (corners >>> (pos * 5)) & 0x1F;
+                cornerMoves += CORNER_DISTANCE[pos << 5 | lane];
+                twist += (lane >>> 3) * TWIST_WEIGHT[pos];
+            }
+            for(int pos = 0; pos < 12; pos++){
+                int lane = (int) (edges >>> (pos * 5)) & 0x1F;
+                edgeMoves += EDGE_DISTANCE[pos << 5 | lane];
+                flip += (lane >>> 4) * FLIP_WEIGHT[pos];
+            }
+        }
+
+        @Override
+        public int value() {
+            int h = Math.max((cornerMoves + 3) / 4, (edgeMoves + 3) / 4);
+            h = Math.max(h, TWIST_DISTANCE[twist]);
+            return Math.max(h, FLIP_DISTANCE[flip]);
+        }
+
+        @Override
+        public void apply(int move) {
+            if(depth == saved.length){
+                saved = Arrays.copyOf(saved, depth * 2);
+            }
+            saved[depth++] = cornerMoves;
+            saved[depth++] = edgeMoves;
+            saved[depth++] = twist;
+            saved[depth++] = flip;
+
+            long newCorners = cube.cornerState();
+            for(int pos: CORNERS_MOVED[move]){
+                int shift = pos * 5;
+                int lane = (int) (newCorners >>> shift) & 0x1F;
+                int old = (int) (corners >>> shift) & 0x1F;
+                cornerMoves += CORNER_DISTANCE[pos << 5 | lane] - CORNER_DISTANCE[pos << 5 | old];
+                twist += ((lane >>> 3) - (old >>> 3)) * TWIST_WEIGHT[pos];
+            }
+            long newEdges = cube.edgeState();
+            for(int pos: EDGES_MOVED[move]){
+                int shift = pos * 5;
+                int lane = (int) (newEdges >>> shift) & 0x1F;
+                int old = (int) (edges >>> shift) & 0x1F;
+                edgeMoves += EDGE_DISTANCE[pos << 5 | lane] - EDGE_DISTANCE[pos << 5 | old];
+                flip += ((lane >>> 4) - (old >>> 4)) * FLIP_WEIGHT[pos];
+            }
+            corners = newCorners;
+            edges = newEdges;
+        }
+
+        @Override
+        public void undo(int move) {
+            flip = saved[--depth];
+            twist = saved[--depth];
+            edgeMoves = saved[--depth];
+            cornerMoves = saved[--depth];
+            corners = cube.cornerState();
+            edges = cube.edgeState();
+        }
+    }
+}
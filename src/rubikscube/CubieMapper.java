@@ -1,6 +1,16 @@
 package rubikscube;
 
+import java.util.Arrays;
+
+/**
+ * Translates between the facelet net of the input files and cubies.
+ *
+ * The net is 9 rows of 12 characters (up face on top, then left, front, right
+ * and back, down face at the bottom). It is kept as one flat char array,
+ * facelet (row, col) at index row * NET_COLS + col.
+ */
 public class CubieMapper {
+    public static final int NET_ROWS = 9, NET_COLS = 12;
 
     private static final char[][] SOLVED_STATE = {
             {' ', ' ', ' ', 'O', 'O', 'O', ' ', ' ', ' ', ' ', ' ', ' '},
@@ -102,137 +112,291 @@ public class CubieMapper {
             {'Y', 'B'}   // 11: BR
     };
 
-    /**
-     * Get all corners from the cubeState
-     */
-    public static Corner[] getCorners(char[][] cubeState){
-        if(cubeState == null){ return null; }
+    // True where CORNER_COORDS lists the facelets in clockwise order.
+    // The other positions list them counter-clockwise, so facelet 1 and 2 swap roles.
+    private static final boolean[] CORNER_CLOCKWISE = {
+            true, false, false, true, false, true, true, false
+    };
+
+    // Net facelet index (row * NET_COLS + col) of the center of each face, in RubiksCube.FACES order
+    static final int[] CENTERS = {4 * NET_COLS + 4, 4 * NET_COLS + 10, 4 * NET_COLS + 7,
+            4 * NET_COLS + 1, NET_COLS + 4, 7 * NET_COLS + 4};
+    static final char[] CENTER_COLORS = {'W', 'Y', 'B', 'G', 'O', 'R'};
 
-        Corner[] corners = new Corner[8];
+    // One bit per color, 0 for characters that are no color
+    private static final int[] COLOR_BIT = new int[128];
+
+    // Net facelet indices of CORNER_COORDS and EDGE_COORDS
+    static final int[][] CORNER_FACELETS = new int[8][3];
+    static final int[][] EDGE_FACELETS = new int[12][2];
+
+    // Piece with exactly the colors of a color mask, -1 if there is none
+    private static final int[] CORNER_BY_COLORS = new int[1 << 6];
+    private static final int[] EDGE_BY_COLORS = new int[1 << 6];
+
+    static {
+        for(int i = 0; i < CENTER_COLORS.length; i++){
+            COLOR_BIT[CENTER_COLORS[i]] = 1 << i;
+        }
+        Arrays.fill(CORNER_BY_COLORS, -1);
+        Arrays.fill(EDGE_BY_COLORS, -1);
         for(int i = 0; i < 8; i++){
-            Coord[] coords = CORNER_COORDS[i];
-            char c1 = cubeState[coords[0].row][coords[0].col];
-            char c2 = cubeState[coords[1].row][coords[1].col];
-            char c3 = cubeState[coords[2].row][coords[2].col];
-            corners[i] = new Corner(i ,c1, c2, c3);
-            identifyCorner(corners[i]);
+            int mask = 0;
+            for(int k = 0; k < 3; k++){
+                CORNER_FACELETS[i][k] = CORNER_COORDS[i][k].row * NET_COLS + CORNER_COORDS[i][k].col;
+                mask |= COLOR_BIT[SOLVED_CORNER_COLORS[i][k]];
+            }
+            CORNER_BY_COLORS[mask] = i;
+        }
+        for(int i = 0; i < 12; i++){
+            int mask = 0;
+            for(int k = 0; k < 2; k++){
+                EDGE_FACELETS[i][k] = EDGE_COORDS[i][k].row * NET_COLS + EDGE_COORDS[i][k].col;
+                mask |= COLOR_BIT[SOLVED_EDGE_COLORS[i][k]];
+            }
+            EDGE_BY_COLORS[mask] = i;
         }
-        return corners;
     }
 
     /**
-     * Get all edges from cubeState
+     * @return a fresh copy of the solved net
      */
-    public static Edge[] getEdges(char[][] cubeState){
-        if(cubeState == null){ return null;}
+    static char[] solvedState(){
+        char[] net = new char[NET_ROWS * NET_COLS];
+        for(int i = 0; i < NET_ROWS; i++){
+            System.arraycopy(SOLVED_STATE[i], 0, net, i * NET_COLS, NET_COLS);
+        }
+        return net;
+    }
 
-        Edge[] edges = new Edge[12];
-        for(int i = 0; i < 12; i++){
-            Coord[] coords = EDGE_COORDS[i]; // Subarray
-            char c1 = cubeState[coords[0].row][coords[0].col];
-            char c2 = cubeState[coords[1].row][coords[1].col];
-            edges[i] = new Edge(i, c1, c2);
-            identifyEdges(edges[i]);
+    /**
+     * Draw cube's cubies onto a fresh net, the inverse of parse
+     */
+    static char[] toNet(RubiksCube cube){
+        return toNet(cube, solvedState());
+    }
+
+    /**
+     * Redraw the corner and edge facelets of net, which already holds the
+     * centers (any net from solvedState, toNet or a parsed file does)
+     * @return net
+     */
+    static char[] toNet(RubiksCube cube, char[] net){
+        for(int pos = 0; pos < 8; pos++){
+            drawCorner(net, pos, cube.getCornerPiece(pos), cube.getCornerOrientation(pos));
         }
-        return edges;
+        for(int pos = 0; pos < 12; pos++){
+            drawEdge(net, pos, cube.getEdgePiece(pos), cube.getEdgeOrientation(pos));
+        }
+        return net;
     }
 
     /**
-     * Identify which piece a corner is and calculate its orientation
+     * Color the 3 facelets of corner position pos as piece with orientation ori
      */
-    private static void identifyCorner(Corner corner){
-        if(corner == null){ return; }
-        char[] extractedColors = corner.getColors(); // Returns ['O', 'G', 'W']
-
-        // Match this piece's colors with a corresponding solved corner piece
-        for(int pieceID = 0; pieceID < 8; pieceID++){
-            char[] solvedColors = SOLVED_CORNER_COLORS[pieceID]; // Returns ['O', 'W', 'G']
-            if(hasColors(extractedColors, solvedColors)){
-                corner.setPieceID(pieceID);
-
-                // Calculate orientation based on piece ID (not just solved[0])
-                // For upper corners (0-3), reference face is 'O' (up)
-                // For lower corners (4-7), reference face is 'R' (down)
-                int ori = calculateOrientation(extractedColors, solvedColors, pieceID);
-                corner.setOrientation(ori);
-                return;
-            }
+    static void drawCorner(char[] net, int pos, int piece, int ori){
+        char[] colors = SOLVED_CORNER_COLORS[piece];
+        // Index of the facelet holding the U/D color, see readCorner
+        int ref = CORNER_CLOCKWISE[pos] ? ori : (3 - ori) % 3;
+        // Walk both the piece's colors and the position's facelets clockwise
+        int step = CORNER_CLOCKWISE[pos] ? 1 : 2;
+        int colorStep = CORNER_CLOCKWISE[piece] ? 1 : 2;
+        for(int k = 0; k < 3; k++){
+            net[CORNER_FACELETS[pos][(ref + k * step) % 3]] = colors[(k * colorStep) % 3];
         }
-        /*
-         * Code should not reach here, for each extracted colour array from our
-         * physical cubeState, there must be one matching solved piece
-         */
-        throw new IllegalStateException("Line162: Something wrong with cube.");
     }
 
     /**
-     * Identify edge pieces and calculate its orientation (0 or 1)
+     * Color the 2 facelets of edge position pos as piece with orientation ori
+     */
+    static void drawEdge(char[] net, int pos, int piece, int ori){
+        char[] colors = SOLVED_EDGE_COLORS[piece];
+        net[EDGE_FACELETS[pos][0]] = colors[ori];
+        net[EDGE_FACELETS[pos][1]] = colors[1 - ori];
+    }
+
+    /**
+     * @return the corner at pos as piece | ori << 3, -1 if its colors are no
+     * corner or a mirrored one
+     */
+    static int readCorner(char[] net, int pos){
+        int[] facelets = CORNER_FACELETS[pos];
+        int piece = CORNER_BY_COLORS[colorMask(net, facelets)];
+        if(piece < 0){ return -1; }
+
+        // Facelet holding the U/D color, then the rest must follow clockwise like on the piece
+        char[] colors = SOLVED_CORNER_COLORS[piece];
+        int ref = net[facelets[0]] == colors[0] ? 0 : net[facelets[1]] == colors[0] ? 1 : 2;
+        int step = CORNER_CLOCKWISE[pos] ? 1 : 2;
+        int colorStep = CORNER_CLOCKWISE[piece] ? 1 : 2;
+        if(net[facelets[(ref + step) % 3]] != colors[colorStep]){ return -1; }
+        int ori = CORNER_CLOCKWISE[pos] ? ref : (3 - ref) % 3;
+        return piece | (ori << 3);
+    }
+
+    /**
+     * @return the edge at pos as piece | ori << 4, -1 if its colors are no edge
+     */
+    static int readEdge(char[] net, int pos){
+        int[] facelets = EDGE_FACELETS[pos];
+        int piece = EDGE_BY_COLORS[colorMask(net, facelets)];
+        if(piece < 0){ return -1; }
+        int ori = net[facelets[0]] == SOLVED_EDGE_COLORS[piece][0] ? 0 : 1;
+        return piece | (ori << 4);
+    }
+
+    /**
+     * Build a corner object for a piece, colors in its solved order
      */
-    private static void identifyEdges(Edge edge){
-        if(edge == null){ return; }
-        char[] extractedColors = edge.getColors();
-
-        for(int pieceID = 0; pieceID < 12; pieceID++){
-            char[] solvedColors = SOLVED_EDGE_COLORS[pieceID];
-            if(hasColors(extractedColors, solvedColors)){
-                edge.setPieceId(pieceID);
-
-                int ori = (extractedColors[0] == solvedColors[0]) ? 0: 1;
-                edge.setOrientation(ori);
-                return;
+    static Corner newCorner(int pieceID, int orientation){
+        char[] colors = SOLVED_CORNER_COLORS[pieceID];
+        Corner corner = new Corner(pieceID, colors[0], colors[1], colors[2]);
+        corner.setOrientation(orientation);
+        return corner;
+    }
+
+    /**
+     * Build an edge object for a piece, colors in its solved order
+     */
+    static Edge newEdge(int pieceID, int orientation){
+        char[] colors = SOLVED_EDGE_COLORS[pieceID];
+        Edge edge = new Edge(pieceID, colors[0], colors[1]);
+        edge.setOrientation(orientation);
+        return edge;
+    }
+
+    /**
+     * Read the cubies straight off a net: every corner's 3 and every edge's 2
+     * facelet colors form a color set that a lookup table maps to a piece, so
+     * each cubie costs a few array reads.
+     * The result is written into cube.
+     * @param net NET_ROWS x NET_COLS facelets, row by row
+     * @throws IncorrectFormatException if a facelet has an unknown color, a
+     * center is off, a color set is no piece (or a mirrored one), a piece
+     * appears twice, or the state cannot be reached by turning faces: corner
+     * twist not 0 mod 3, edge flip odd, or corner and edge permutation parity differ
+     */
+    static void parse(char[] net, RubiksCube cube){
+        for(int face = 0; face < CENTERS.length; face++){
+            if(net[CENTERS[face]] != CENTER_COLORS[face]){
+                throw new IncorrectFormatException("Center " + describe(CENTERS[face])
+                        + " should be " + CENTER_COLORS[face] + ", the net must be in the solved orientation");
+            }
+        }
+
+        long corners = 0;
+        int seen = 0;
+        for(int pos = 0; pos < 8; pos++){
+            int[] facelets = CORNER_FACELETS[pos];
+            int lane = readCorner(net, pos);
+            if(lane < 0){
+                checkColors(net, facelets);
+                String problem = CORNER_BY_COLORS[colorMask(net, facelets)] < 0 ? " has colors of no corner" : " has its colors mirrored";
+                throw new IncorrectFormatException("Corner " + describe(facelets[0]) + problem);
+            }
+            int piece = lane & 7;
+            if((seen & (1 << piece)) != 0){
+                throw new IncorrectFormatException("Corner " + describe(facelets[0]) + " is a second copy of corner " + piece);
+            }
+            seen |= 1 << piece;
+            corners |= (long) lane << (pos * 5);
+        }
+
+        long edges = 0;
+        seen = 0;
+        for(int pos = 0; pos < 12; pos++){
+            int[] facelets = EDGE_FACELETS[pos];
+            int lane = readEdge(net, pos);
+            if(lane < 0){
+                checkColors(net, facelets);
+                throw new IncorrectFormatException("Edge " + describe(facelets[0]) + " has colors of no edge");
+            }
+            int piece = lane & 15;
+            if((seen & (1 << piece)) != 0){
+                throw new IncorrectFormatException("Edge " + describe(facelets[0]) + " is a second copy of edge " + piece);
             }
+            seen |= 1 << piece;
+            edges |= (long) lane << (pos * 5);
         }
-        throw new IllegalStateException("Line175: Something wrong with cube.");
+
+        validate(corners, edges);
+        cube.setState(corners, edges);
     }
 
+    /**
+     * Check that packed lanes from outside, such as a cube file record, are a
+     * state face turns can reach; the same checks parse makes on a net
+     * @throws IncorrectFormatException if the lanes are no permutation of the
+     * pieces, or the corner twist is not 0 mod 3, the edge flip is odd, or
+     * the corner and edge permutation parities differ
+     */
+    static void validate(long corners, long edges){
+        if(!RubiksCube.isPermutation(corners, edges)){
+            throw new IncorrectFormatException("Invalid packed cube state");
+        }
+        int twist = 0;
+        for(int pos = 0; pos < 8; pos++){
+            twist += (int) (corners >>> (pos * 5 + 3)) & 3;
+        }
+        int flip = 0;
+        for(int pos = 0; pos < 12; pos++){
+            flip += (int) (edges >>> (pos * 5 + 4)) & 1;
+        }
+        if(twist % 3 != 0){
+            throw new IncorrectFormatException("Unsolvable cube: a corner is twisted in place");
+        }
+        if(flip % 2 != 0){
+            throw new IncorrectFormatException("Unsolvable cube: an edge is flipped in place");
+        }
+        if(parity(corners, 8, 7) != parity(edges, 12, 15)){
+            throw new IncorrectFormatException("Unsolvable cube: two pieces are swapped");
+        }
+    }
 
     /**
-     * Calculate the orientation of each corner
-     * 0 for normal
-     * 1 for clockwise twist
-     * 2 for counterclockwise twist
+     * Union of the color bits of the facelets, 0 if one has no known color
+     * or two share a color
      */
-    private static int calculateOrientation(char[] extracted, char[] solved, int pieceID){
-        if(extracted.length == 0 || solved.length == 0){ return -1; }
-
-        // Determine reference face color based on piece ID
-        // For upper corners (0-3), reference is 'O' (up face)
-        // For lower corners (4-7), reference is 'R' (down face)
-        char referenceColor;
-        if(pieceID < 4){
-            referenceColor = 'O'; // Upper corners use up face as reference
-        } else {
-            referenceColor = 'R'; // Lower corners use down face as reference
-        }
-
-        // Find where reference color appears in extracted colors
-        for(int i = 0; i < 3; i++){
-            if(extracted[i] == referenceColor){
-                return i;
+    private static int colorMask(char[] net, int[] facelets){
+        int mask = 0;
+        for(int facelet: facelets){
+            char c = net[facelet];
+            int bit = c < COLOR_BIT.length ? COLOR_BIT[c] : 0;
+            if(bit == 0 || (mask & bit) != 0){ return 0; }
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    private static void checkColors(char[] net, int[] facelets){
+        for(int facelet: facelets){
+            char c = net[facelet];
+            if(c >= COLOR_BIT.length || COLOR_BIT[c] == 0){
+                throw new IncorrectFormatException("Unknown color '" + c + "' " + describe(facelet));
             }
         }
-        System.out.println("Should not reach here");
-        return 0;
     }
 
     /**
-     * Checks if two color arrays hold the same colors
-     * regardless of order
+     * Parity of the permutation in the piece bits of n packed 5 bit lanes, 0 even, 1 odd
      */
-    private static boolean hasColors(char[] color1, char[] color2){
-        if(color1.length != color2.length){ return false; } // Should not occur at all in execution
-
-        for(char c: color1){
-            boolean isFound = false;
-            for(char c1: color2){
-                if(c == c1){
-                    isFound = true;
-                    break;
-                }
-            }
-            if(!isFound){ return false; }
+    private static int parity(long lanes, int n, int pieceMask){
+        int parity = 0, visited = 0;
+        for(int start = 0; start < n; start++){
+            if((visited & (1 << start)) != 0){ continue; }
+            // A cycle of length k is k - 1 swaps
+            int pos = start;
+            do {
+                visited |= 1 << pos;
+                pos = (int) (lanes >>> (pos * 5)) & pieceMask;
+                parity ^= 1;
+            } while(pos != start);
+            parity ^= 1;
         }
-        return true;
+        return parity;
     }
 
+    private static String describe(int facelet){
+        return "at row " + (facelet / NET_COLS + 1) + ", column " + (facelet % NET_COLS + 1);
+    }
 }
@@ -0,0 +1,56 @@
+package rubikscube;
+
+/**
+ * When a solve has to stop: a point in time, a cancellation, or whichever
+ * comes first. Solvers poll expired() every few thousand nodes, so they stop
+ * shortly after, with the best result they have. cancel() may be called from
+ * any thread.
+ */
+public class Deadline {
+    private final long endNanos;
+    private final boolean timed;
+    private volatile boolean cancelled;
+
+    private Deadline(long endNanos, boolean timed) {
+        this.endNanos = endNanos;
+        this.timed = timed;
+    }
+
+    /**
+     * @param millis time from now until the deadline
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + millis * 1_000_000L, true);
+    }
+
+    /**
+     * A deadline that only expires when cancelled
+     */
+    public static Deadline none() {
+        return new Deadline(0, false);
+    }
+
+    /**
+     * Make the solves using this deadline stop as soon as they notice
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean expired() {
+        return cancelled || timed && System.nanoTime() - endNanos >= 0;
+    }
+
+    /**
+     * @return milliseconds left, Long.MAX_VALUE if there is no time limit, 0 once expired
+     */
+    public long remainingMillis() {
+        if(cancelled){ return 0; }
+        if(!timed){ return Long.MAX_VALUE; }
+        return Math.max(0, (endNanos - System.nanoTime()) / 1_000_000L);
+    }
+}
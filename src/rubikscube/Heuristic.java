@@ -2,4 +2,35 @@ package rubikscube;
 
 public interface Heuristic {
     int calculate(RubiksCube cube);
-}
\ No newline at end of file
+
+    /**
+     * Evaluates the heuristic along a search path on one cube. A face turn
+     * only moves 4 corners and 4 edges, so an implementation can keep what it
+     * derived from the other pieces and only update the moved ones.
+     */
+    interface Incremental {
+        /**
+         * @return the heuristic of the cube as it is now, the same as calculate
+         */
+        int value();
+
+        /**
+         * The cube was just turned by move
+         */
+        default void apply(int move) {}
+
+        /**
+         * The cube was just turned back by the inverse of move, which was the last move applied
+         */
+        default void undo(int move) {}
+    }
+
+    /**
+     * Start evaluating along moves made on cube; apply and undo must be called
+     * for every move made on it from now on. The default recomputes calculate
+     * on every call of value
+     */
+    default Incremental incremental(RubiksCube cube) {
+        return () -> calculate(cube);
+    }
+}
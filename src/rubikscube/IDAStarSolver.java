@@ -1,135 +1,438 @@
 package rubikscube;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
-public class IDAStarSolver {
-    private List<Character> solution; // Ex: ['F', 'B', 'R', 'B', ...]
-    private boolean foundSolution;
-    private static final char[] MOVES = {'F', 'B', 'R', 'L', 'U', 'D'};
-    private static int MAX_TIME = 9700; // 9.7s
-    private static long startTime;
-    private Heuristic heuristic;
+public class IDAStarSolver implements CubeSolver {
+    private List<Integer> solution; // Ex: [F, B2, R', ...] as RubiksCube move indices
+    private volatile boolean foundSolution;
+    private static final int MOVES = RubiksCube.N_MOVES;
+    private static final MoveAutomaton SEQUENCES = MoveAutomaton.HALF_TURNS;
+    // Time limit of a solve without a Deadline
+    private static final long DEFAULT_TIME_LIMIT = 9700; // 9.7s
+    // How many nodes a worker expands between clock checks
+    private static final int CLOCK_INTERVAL = 4096;
+    // '35' is an arbitrary value, our threshold could be way higher
+    private static final int MAX_DEPTH = 35;
+    private static final int FOUND = -1;
+    private Deadline deadline;
+    private volatile boolean stopped;
+    // Counters of the last solve, see getMetrics
+    private SearchMetrics metrics = new SearchMetrics();
+    private final Heuristic heuristic;
+    // Optional, shared by all workers; only consulted when at least this many moves of budget remain
+    private TranspositionTable transpositions;
+    private static final int MIN_TABLE_BUDGET = 2;
+
+    // Optional, run first for a complete answer to return if time runs out
+    private CubeSolver quickSolver;
+
+    // What the last solve knows: a lower bound on the optimal length, whether
+    // the answer is optimal, and the moves to the state with the smallest heuristic
+    private int lowerBound;
+    private boolean optimal;
+    private int[] bestPartial = new int[0];
+    private volatile int bestPartialHeuristic;
+
+    // Parallel mode only: workers, and the depth at which subtrees stop being split into tasks
+    private final ForkJoinPool pool;
+    private final int splitDepth;
 
     public IDAStarSolver(){
+        this(new CubieDistanceHeuristic());
+    }
+
+    /**
+     * @param heuristic admissible estimate of the moves left, e.g. a PatternDatabaseHeuristic
+     */
+    public IDAStarSolver(Heuristic heuristic){
+        this(heuristic, null, 0);
+    }
+
+    /**
+     * Parallel search: every IDA* iteration is split into one task per move
+     * sequence of length splitDepth, run on pool with work stealing. The first
+     * task to find a solution cancels the others.
+     * @param heuristic must be safe to call from several threads
+     * @param pool workers to run on, null for a single threaded search
+     * @param splitDepth depth at which a task searches its subtree sequentially, 1-3 is plenty
+     */
+    public IDAStarSolver(Heuristic heuristic, ForkJoinPool pool, int splitDepth){
         this.solution = new ArrayList<>();
         this.foundSolution = false;
-        this.heuristic = new MisplacedTilesHeuristic();
+        this.heuristic = heuristic;
+        this.pool = pool;
+        this.splitDepth = splitDepth;
     }
 
     /**
-     * Solves our cube using IDA* algorithm
+     * Cache learned lower bounds in table, null to turn it off. The table may
+     * be shared with other solvers and kept across solves
+     */
+    public void setTranspositionTable(TranspositionTable table){
+        this.transpositions = table;
+    }
+
+    /**
+     * Solve with quick first, e.g. TwoPhaseSolver.quick(). Its solution is
+     * returned when IDA* runs out of time, and IDA* stops as soon as it has
+     * proven that solution optimal. null, the default, turns it off: a solve
+     * that runs out of time returns null
+     */
+    public void setQuickSolver(CubeSolver quick){
+        this.quickSolver = quick;
+    }
+
+    @Override
+    public String solve(RubiksCube cube){
+        return IDAStarSolve(cube);
+    }
+
+    @Override
+    public String solve(RubiksCube cube, Deadline deadline){
+        return IDAStarSolve(cube, deadline);
+    }
+
+    /**
+     * Solves our cube using IDA* algorithm, for at most 9.7s
      * @param cube Scrambled code we solve
      * @return a string of moves that solves our cube
      */
     public String IDAStarSolve(RubiksCube cube){
+        return IDAStarSolve(cube, Deadline.after(DEFAULT_TIME_LIMIT));
+    }
+
+    /**
+     * Solves our cube using IDA* algorithm until deadline
+     * @param cube Scrambled code we solve
+     * @return an optimal solution, or when deadline expires first the quick
+     * solver's solution, null without one. See isOptimal, getLowerBound and
+     * getBestPartial for what is known after an early stop
+     */
+    public String IDAStarSolve(RubiksCube cube, Deadline deadline){
         if(cube == null){ return null; }
 
-        // Start timer
-        startTime = System.currentTimeMillis();
+        this.deadline = deadline;
+        stopped = false;
+        foundSolution = false;
+        solution.clear();
+        metrics = new SearchMetrics();
+        optimal = false;
+        bestPartial = new int[0];
         if(cube.isSolved()){
+            lowerBound = 0;
+            optimal = true;
+            metrics.end(0, false);
             return "";
         }
         int currentThreshold = heuristic.calculate(cube);
-        System.out.println("Init Heuristic: " + currentThreshold);
+        lowerBound = currentThreshold;
+        bestPartialHeuristic = currentThreshold;
+        metrics.begin(currentThreshold);
 
-        // '35' is an arbitrary value, our threshold could be way higher
-        while(currentThreshold <= 35 && !foundSolution){
-            if(isTime()){ // Check if we are under 10s runtime
-                System.out.println("Time is up! Exiting");
-                return null;
+        // A complete answer up front; IDA* only has to look for shorter ones
+        String quick = quickSolver == null ? null : quickSolver.solve(cube, deadline);
+        int quickLength = quick == null ? Integer.MAX_VALUE : RubiksCube.parseMoves(quick).length;
+
+        while(currentThreshold <= MAX_DEPTH && currentThreshold < quickLength && !foundSolution){
+            if(deadline.expired()){
+                stopped = true;
+                break;
             }
-            solution.clear();
 
-            // Perform our DFS with A*
-            int val = IDASearch(cube, 0, currentThreshold, ' ');
+            // Perform our DFS with A* on a private copy, moves are undone in place
+            int val;
+            long iterationStart = System.nanoTime();
+            metrics.beginIteration(currentThreshold);
+            if(pool == null){
+                SearchPath path = new SearchPath(cube.copy(), heuristic);
+                val = IDASearch(path, 0, currentThreshold, MoveAutomaton.START);
+                metrics.merge(path.counters);
+            } else {
+                val = pool.invoke(new SubtreeTask(cube, new int[0], currentThreshold));
+            }
+            metrics.endIteration(System.nanoTime() - iterationStart, val != FOUND && val != Integer.MAX_VALUE);
 
             // Solution found or out of time
-            if(val == -1){
-                foundSolution = true;
-                System.out.println("Found sol");
+            if(val == FOUND){
                 break;
             }
 
-            // Solution was not found
+            // Out of time, or nothing left to search
             if(val == Integer.MAX_VALUE){
                 break;
             }
             currentThreshold = val;
+            lowerBound = val;
+        }
+        if(foundSolution){
+            lowerBound = solution.size();
+            optimal = true;
+            metrics.end(solution.size(), false);
+            // Give user back the solution array as a str
+            return solutionToString();
+        }
+        if(!stopped && quick != null && currentThreshold >= quickLength){
+            // Every shorter sequence has been searched
+            lowerBound = quickLength;
+            optimal = true;
+        }
+        metrics.end(quick == null ? -1 : quickLength, stopped);
+        return quick;
+    }
+
+    /**
+     * Nodes expanded by the last solve
+     */
+    public long getNodes(){
+        return metrics.getNodes();
+    }
+
+    /**
+     * Per threshold counters of the last solve
+     */
+    public SearchMetrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * @return true if the last solution is proven shortest, given an admissible heuristic
+     */
+    public boolean isOptimal(){
+        return optimal;
+    }
+
+    /**
+     * @return a length no solution of the last cube can be shorter than, given an admissible heuristic
+     */
+    public int getLowerBound(){
+        return lowerBound;
+    }
+
+    /**
+     * Moves from the last cube to the state with the smallest heuristic the
+     * search reached, something to show when no complete solution was found
+     */
+    public String getBestPartial(){
+        return RubiksCube.movesToString(bestPartial, bestPartial.length);
+    }
+
+    /**
+     * @return the heuristic of the state getBestPartial leads to
+     */
+    public int getBestPartialHeuristic(){
+        return bestPartialHeuristic;
+    }
+
+    /**
+     * Moves applied to one worker's private cube
+     */
+    static class SearchPath {
+        final RubiksCube cube;
+        // The heuristic of cube, updated with every push and pop
+        final Heuristic.Incremental heuristic;
+        final int[] moves = new int[MAX_DEPTH + 1];
+        int length;
+        // This worker's share of the iteration's metrics
+        final SearchMetrics.Counters counters = new SearchMetrics.Counters();
+
+        SearchPath(RubiksCube cube, Heuristic heuristic){
+            this.cube = cube;
+            this.heuristic = heuristic.incremental(cube);
+        }
+
+        void push(int move){
+            cube.applyMove(move);
+            heuristic.apply(move);
+            moves[length++] = move;
+        }
+
+        void pop(int move){
+            length--;
+            cube.applyMove(RubiksCube.inverse(move));
+            heuristic.undo(move);
         }
-        // Give user back the solution array as a str
-        return solutionToString();
     }
 
     /**
      * Iterative Deepening DFS + A*
-     * @param cube cube state
+     * @param path cube state and the moves that led to it
      * @param g actual cost
      * @param limit currentThreshold
-     * @return -1 for fail, Integer.MAX_VALUE for success
+     * @param state MoveAutomaton state of the moves so far
+     * @return -1 for success, Integer.MAX_VALUE for out of time or cancelled,
+     * otherwise the smallest f above limit
      */
-    int IDASearch(RubiksCube cube, int g, int limit, char prevMove){
-        assert cube != null;
+    int IDASearch(SearchPath path, int g, int limit, int state){
+        assert path != null;
+        RubiksCube cube = path.cube;
 
-        if(isTime()){ return Integer.MAX_VALUE; }
-        if(cube.isSolved()){ return -1; }
+        if(foundSolution || stopped){ return Integer.MAX_VALUE; }
+        // Reading the clock costs more than a node, so only look now and then
+        if(++path.counters.nodes % CLOCK_INTERVAL == 0 && deadline.expired()){
+            stopped = true;
+            return Integer.MAX_VALUE;
+        }
+        if(cube.isSolved()){
+            recordSolution(path);
+            return FOUND;
+        }
 
         // Obtain heuristic of our current cube state
-        int h = heuristic.calculate(cube);
+        int h = path.heuristic.value();
         int f = h + g;
+        path.counters.heuristic(h);
+        if(h < bestPartialHeuristic){
+            recordPartial(path, h);
+        }
 
         // Check that f <= lim
         if(f > limit){
+            path.counters.cutoffs++;
             return f; // f becomes newest heuristic
         }
+
+        // A bound learned on an earlier visit may be stronger than the heuristic
+        TranspositionTable table = limit - g >= MIN_TABLE_BUDGET ? transpositions : null;
+        long key = 0;
+        if(table != null){
+            key = TranspositionTable.key(cube, state);
+            f = Math.max(f, table.probe(key) + g);
+            if(f > limit){
+                path.counters.tableCutoffs++;
+                return f;
+            }
+        }
         int min = Integer.MAX_VALUE;
 
-        // TODO: Change to successors later for performance??
-        for(char move: MOVES){
-            String cubeStateBefore = cube.toString();
-            if(isOpposite(prevMove, move)){
-                continue; // skip this move
+        for(int m = 0; m < MOVES; m++){
+            int nextState = SEQUENCES.next(state, m);
+            if(nextState < 0){
+                continue; // redundant after the previous moves, skip this move
             }
-            // Store our moves to solution list
-            cube.applyMoves(String.valueOf(move));
-            solution.add(move);
-            int temp = IDASearch(cube, g+1, limit, move);
+            path.push(m);
+            int temp = IDASearch(path, g+1, limit, nextState);
 
-            if(temp == -1){ return -1; }
+            if(temp == FOUND){ return FOUND; }
             if(temp < min){
                 min = temp;
             }
 
             // Undo moves
-            solution.removeLast();
-            for(int i = 0; i < 3; i++){
-                cube.applyMoves(String.valueOf(move));
-            }
+            path.pop(m);
+        }
+
+        // Only a subtree that was searched to the end teaches us anything
+        if(table != null && min != Integer.MAX_VALUE && !foundSolution && !stopped){
+            table.store(key, min - g);
         }
         return min;
     }
 
     /**
-     * Avoid opposite moves as they are not search friendly
-     * Do not affect each other much, redundant behaviour
+     * The subtree below a move prefix. Splits into one subtask per move until
+     * splitDepth, then searches sequentially on its own cube copy.
+     */
+    // Never serialized, it only lives for one parallel iteration
+    @SuppressWarnings("serial")
+    private class SubtreeTask extends RecursiveTask<Integer> {
+        private final RubiksCube root;
+        private final int[] prefix;
+        private final int limit;
+
+        SubtreeTask(RubiksCube root, int[] prefix, int limit){
+            this.root = root;
+            this.prefix = prefix;
+            this.limit = limit;
+        }
+
+        @Override
+        protected Integer compute(){
+            SearchPath path = new SearchPath(root.copy(), heuristic);
+            int state = MoveAutomaton.START;
+            for(int move: prefix){
+                path.push(move);
+                state = SEQUENCES.next(state, move);
+            }
+            int g = prefix.length;
+            if(g >= splitDepth){
+                int value = IDASearch(path, g, limit, state);
+                metrics.merge(path.counters);
+                return value;
+            }
+
+            if(foundSolution || stopped){ return Integer.MAX_VALUE; }
+            if(deadline.expired()){
+                stopped = true;
+                return Integer.MAX_VALUE;
+            }
+            // Count this node as IDASearch would, the subtrees count their own
+            path.counters.nodes++;
+            if(path.cube.isSolved()){
+                metrics.merge(path.counters);
+                recordSolution(path);
+                return FOUND;
+            }
+            int h = path.heuristic.value();
+            int f = h + g;
+            path.counters.heuristic(h);
+            if(h < bestPartialHeuristic){
+                recordPartial(path, h);
+            }
+            if(f > limit){
+                path.counters.cutoffs++;
+                metrics.merge(path.counters);
+                return f;
+            }
+            metrics.merge(path.counters);
+
+            List<SubtreeTask> tasks = new ArrayList<>();
+            for(int m = 0; m < MOVES; m++){
+                if(SEQUENCES.next(state, m) < 0){ continue; }
+                int[] next = Arrays.copyOf(prefix, g + 1);
+                next[g] = m;
+                tasks.add(new SubtreeTask(root, next, limit));
+            }
+            int min = Integer.MAX_VALUE;
+            for(SubtreeTask task: invokeAll(tasks)){
+                int value = task.join();
+                if(value == FOUND){ return FOUND; }
+                min = Math.min(min, value);
+            }
+            return min;
+        }
+    }
+
+    /**
+     * Keep the first solution found, later ones from other workers are ignored
      */
-    private boolean isOpposite(char lastMove, char curMove){
-        if(lastMove == ' '){ return false; }
-        if((lastMove == 'F' && curMove == 'B') || (lastMove == 'B' && curMove == 'F')){ return true; }
-        if((lastMove == 'L' && curMove == 'R') || (lastMove == 'R' && curMove == 'L')){ return true; }
-        return (lastMove == 'U' && curMove == 'D') || (lastMove == 'D' && curMove == 'U');
+    private synchronized void recordSolution(SearchPath path){
+        if(foundSolution){ return; }
+        solution.clear();
+        for(int i = 0; i < path.length; i++){
+            solution.add(path.moves[i]);
+        }
+        foundSolution = true;
     }
 
-    private boolean isTime(){
-        return (System.currentTimeMillis() - startTime) > MAX_TIME;
+    /**
+     * Keep the moves to the state with the smallest heuristic seen so far
+     */
+    private synchronized void recordPartial(SearchPath path, int h){
+        if(h >= bestPartialHeuristic){ return; }
+        bestPartial = Arrays.copyOf(path.moves, path.length);
+        bestPartialHeuristic = h;
     }
 
     private String solutionToString() {
-        StringBuilder sb = new StringBuilder();
-        for (char move : solution) {
-            sb.append(move);
+        int[] moves = new int[solution.size()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = solution.get(i);
         }
-        return sb.toString();
+        return RubiksCube.movesToString(moves, moves.length);
     }
 
 }
@@ -0,0 +1,121 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed loop load test for a SolverServer: every client sends the next cube
+ * of the corpus as soon as its previous answer arrives, for a fixed time.
+ * Prints throughput, the count of each response status and latency
+ * percentiles.
+ */
+public class LoadGenerator {
+    private final URI uri;
+    private final List<byte[]> cubes;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * @param url the server's solve endpoint, e.g. http://localhost:8080/solve
+     * @param source cube files as for BatchSolver: directory, glob or "-"
+     */
+    public LoadGenerator(String url, String source) throws IOException {
+        this.uri = URI.create(url);
+        this.cubes = new ArrayList<>();
+        BatchSolver.forEachFile(source, file -> cubes.add(Files.readAllBytes(file)));
+        if(cubes.isEmpty()){
+            throw new IOException("No cube files in " + source);
+        }
+    }
+
+    /**
+     * One client thread's results
+     */
+    private static final class Client extends Thread {
+        final LoadGenerator load;
+        final long end;
+        final Map<Integer, Integer> statuses = new TreeMap<>();
+        long[] latencies = new long[1024];
+        int count;
+
+        Client(LoadGenerator load, long end){
+            this.load = load;
+            this.end = end;
+        }
+
+        @Override
+        public void run(){
+            while(System.nanoTime() < end){
+                byte[] cube = load.cubes.get((int) (load.next.getAndIncrement() % load.cubes.size()));
+                HttpRequest request = HttpRequest.newBuilder(load.uri)
+                        .header("Content-Type", "text/plain")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(cube))
+                        .build();
+                long start = System.nanoTime();
+                int status;
+                try {
+                    status = load.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                }
+                catch (IOException e) {
+                    status = -1;
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                if(count == latencies.length){
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+                statuses.merge(status, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Run clients in parallel for seconds and print the summary
+     */
+    public void run(int clients, int seconds) throws InterruptedException {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Client> threads = new ArrayList<>();
+        for(int i = 0; i < clients; i++){
+            Client client = new Client(this, end);
+            threads.add(client);
+            client.start();
+        }
+
+        Map<Integer, Integer> statuses = new TreeMap<>();
+        long[] latencies = new long[0];
+        for(Client client: threads){
+            client.join();
+            client.statuses.forEach((status, n) -> statuses.merge(status, n, Integer::sum));
+            int from = latencies.length;
+            latencies = Arrays.copyOf(latencies, from + client.count);
+            System.arraycopy(client.latencies, 0, latencies, from, client.count);
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("requests %d in %d s, %.1f/s, %d clients, %d cubes%n",
+                latencies.length, seconds, (double) latencies.length / seconds, clients, cubes.size());
+        statuses.forEach((status, n) -> System.out.println("status " + (status < 0 ? "error" : status) + ": " + n));
+        if(latencies.length > 0){
+            System.out.printf("latency ms p50 %.1f p90 %.1f p99 %.1f max %.1f%n", percentile(latencies, 50),
+                    percentile(latencies, 90), percentile(latencies, 99), latencies[latencies.length - 1] / 1e6);
+        }
+    }
+
+    private static double percentile(long[] sorted, int p){
+        int i = (int) Math.min(sorted.length - 1, (long) sorted.length * p / 100);
+        return sorted[i] / 1e6;
+    }
+}
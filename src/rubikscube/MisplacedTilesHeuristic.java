@@ -1,37 +1,63 @@
 package rubikscube;
 
+/**
+ * Facelets that do not show their face's center color, divided by 4.
+ *
+ * Works on the packed cubies rather than a drawn net: only the lanes that
+ * differ from solved are visited, and how many wrong facelets a cubie shows
+ * at a position comes from a table.
+ */
 public class MisplacedTilesHeuristic implements Heuristic {
+    // [pos << 5 | lane] facelets of the cubie at pos that are not the color of their face
+    private static final byte[] CORNER_WRONG = new byte[8 << 5];
+    private static final byte[] EDGE_WRONG = new byte[12 << 5];
 
-    @Override
-    public int calculate(RubiksCube cube) {
-        String cubeState = cube.toString();
-        String[] lines = cubeState.split("\n");
-
-        int misplacedCounter = 0;
-
-        misplacedCounter += countMisplaced(lines, 0, 2, 3, 6, 'O'); // Top face (Orange)
-        misplacedCounter += countMisplaced(lines, 3, 5, 0, 3, 'G'); // Left face (Green)
-        misplacedCounter += countMisplaced(lines, 3, 5, 3, 6, 'W'); // Front face (White)
-        misplacedCounter += countMisplaced(lines, 3, 5, 6, 9, 'B'); // Right face (Blue)
-        misplacedCounter += countMisplaced(lines, 3, 5, 9, 12, 'Y'); // Back face (Yellow)
-        misplacedCounter += countMisplaced(lines, 6, 8, 3, 6, 'R'); // Bottom face (Red)
-
-        return Math.max(1, misplacedCounter / 4);
+    static {
+        char[] solved = CubieMapper.solvedState();
+        char[] net = CubieMapper.solvedState();
+        for(int pos = 0; pos < 8; pos++){
+            for(int piece = 0; piece < 8; piece++){
+                for(int ori = 0; ori < 3; ori++){
+                    CubieMapper.drawCorner(net, pos, piece, ori);
+                    CORNER_WRONG[pos << 5 | piece | ori << 3] = (byte) countWrong(net, solved, CubieMapper.CORNER_FACELETS[pos]);
+                }
+            }
+        }
+        for(int pos = 0; pos < 12; pos++){
+            for(int piece = 0; piece < 12; piece++){
+                for(int ori = 0; ori < 2; ori++){
+                    CubieMapper.drawEdge(net, pos, piece, ori);
+                    EDGE_WRONG[pos << 5 | piece | ori << 4] = (byte) countWrong(net, solved, CubieMapper.EDGE_FACELETS[pos]);
+                }
+            }
+        }
     }
 
-    private int countMisplaced(String[] lines, int rowStart, int rowEnd, int colStart, int colEnd, char target) {
-        if (lines == null) return -1;
-
+    private static int countWrong(char[] net, char[] solved, int[] facelets) {
         int count = 0;
-        for (int i = rowStart; i <= rowEnd; i++) {
-            if (i < lines.length && lines[i].length() >= colEnd) {
-                for (int j = colStart; j < colEnd; j++) {
-                    if (j < lines[i].length() && lines[i].charAt(j) != target && lines[i].charAt(j) != ' ') {
-                        count++;
-                    }
-                }
+        for(int facelet: facelets){
+            if(net[facelet] != solved[facelet]){
+                count++;
             }
         }
         return count;
     }
-}
\ No newline at end of file
+
+    @Override
+    public int calculate(RubiksCube cube) {
+        int misplacedCounter = 0;
+
+        long corners = cube.cornerState();
+        for(long lanes = cube.unsolvedCornerLanes(); lanes != 0; lanes &= lanes - 1){
+            int shift = Long.numberOfTrailingZeros(lanes);
+            misplacedCounter += CORNER_WRONG[shift / 5 << 5 | (int) (corners >>> shift) & 0x1F];
+        }
+        long edges = cube.edgeState();
+        for(long lanes = cube.unsolvedEdgeLanes(); lanes != 0; lanes &= lanes - 1){
+            int shift = Long.numberOfTrailingZeros(lanes);
+            misplacedCounter += EDGE_WRONG[shift / 5 << 5 | (int) (edges >>> shift) & 0x1F];
+        }
+
+        return Math.max(1, misplacedCounter / 4);
+    }
+}
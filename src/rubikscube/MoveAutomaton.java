@@ -0,0 +1,119 @@
+package rubikscube;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finite automaton that accepts exactly one way of writing each move sequence
+ * worth searching:
+ * - turns of the same face in a row are only allowed while no single move of
+ *   the move set does the same thing (so F F is fine with quarter turns only,
+ *   but never with F2 available), and never add up to a full turn
+ * - turns of opposite faces commute, so inside a run of one axis the lower
+ *   face index must come first (F B is allowed, B F is not)
+ * Every sequence can be rewritten into this form without getting longer, so a
+ * search that only follows accepted moves is still complete.
+ *
+ * The automaton is a small precomputed table: state x move -> state, -1 for a
+ * rejected move.
+ */
+public class MoveAutomaton {
+    public static final int START = 0;
+
+    /** All 18 face turns, moves indexed like RubiksCube.applyMove */
+    public static final MoveAutomaton HALF_TURNS;
+
+    static {
+        int[] faces = new int[RubiksCube.N_MOVES], turns = new int[RubiksCube.N_MOVES];
+        for(int m = 0; m < RubiksCube.N_MOVES; m++){
+            faces[m] = m / 3;
+            turns[m] = m % 3 + 1;
+        }
+        HALF_TURNS = new MoveAutomaton(faces, turns);
+    }
+
+    private final int[][] next;
+
+    /**
+     * @param faces face of each move, faces 2k and 2k + 1 are opposite
+     * @param turns clockwise quarter turns of each move, 1 to 3
+     */
+    public MoveAutomaton(int[] faces, int[] turns){
+        int moves = faces.length;
+
+        // A state is the last face turned and its quarter turns so far, START has face -1
+        List<int[]> states = new ArrayList<>();
+        List<int[]> table = new ArrayList<>();
+        states.add(new int[]{-1, 0});
+
+        for(int s = 0; s < states.size(); s++){
+            int face = states.get(s)[0], run = states.get(s)[1];
+            int[] row = new int[moves];
+            for(int m = 0; m < moves; m++){
+                int target;
+                if(faces[m] == face){
+                    int merged = (run + turns[m]) % 4;
+                    target = (merged == 0 || hasMove(faces, turns, face, merged)) ? -1 : stateIndex(states, face, run + turns[m]);
+                } else if(face >= 0 && faces[m] / 2 == face / 2 && faces[m] < face){
+                    target = -1;
+                } else {
+                    target = stateIndex(states, faces[m], turns[m]);
+                }
+                row[m] = target;
+            }
+            table.add(row);
+        }
+        next = table.toArray(new int[0][]);
+    }
+
+    private static boolean hasMove(int[] faces, int[] turns, int face, int quarterTurns){
+        for(int m = 0; m < faces.length; m++){
+            if(faces[m] == face && turns[m] == quarterTurns){ return true; }
+        }
+        return false;
+    }
+
+    private static int stateIndex(List<int[]> states, int face, int run){
+        for(int i = 0; i < states.size(); i++){
+            if(states.get(i)[0] == face && states.get(i)[1] == run){ return i; }
+        }
+        states.add(new int[]{face, run});
+        return states.size() - 1;
+    }
+
+    /**
+     * @return the state after move, or -1 if move is redundant after state
+     */
+    public int next(int state, int move){
+        return next[state][move];
+    }
+
+    public int stateCount(){
+        return next.length;
+    }
+
+    /**
+     * Number of accepted sequences of exactly length moves, for comparing branching factors
+     */
+    public long countSequences(int length){
+        long[] counts = new long[next.length];
+        counts[START] = 1;
+        for(int i = 0; i < length; i++){
+            long[] nextCounts = new long[next.length];
+            for(int s = 0; s < next.length; s++){
+                if(counts[s] == 0){ continue; }
+                for(int target: next[s]){
+                    if(target >= 0){
+                        nextCounts[target] += counts[s];
+                    }
+                }
+            }
+            counts = nextCounts;
+        }
+        long total = 0;
+        for(long count: counts){
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,268 @@
+package rubikscube;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Exact distance-to-solved table for one projection of the cube, e.g. only the
+ * corners, or only a subset of the edges. Entries are generated by a breadth
+ * first search from the solved state over all 18 face turns, so every entry is
+ * a lower bound on the number of moves needed to solve the whole cube.
+ *
+ * Distances are stored 4 bits each, two entries per byte, low nibble first.
+ * The bytes live either on the heap (freshly generated) or in a memory mapped
+ * file, see PatternDatabaseFile.
+ */
+public class PatternDatabase {
+
+    /**
+     * The projections we know how to index
+     */
+    public enum Type {
+        // Corner permutation x corner twist: 8! * 3^7 = 88,179,840 entries
+        CORNERS(Coordinates.N_CORNER_PERM * Coordinates.N_TWIST, -1),
+        // Position and flip of edges 0-5 (UF UL UR UB DF DL): 12!/6! * 2^6 = 42,577,920 entries
+        EDGES_LOW(EDGE_PERMS * 64, 0),
+        // Position and flip of edges 6-11 (DR DB FL FR BL BR)
+        EDGES_HIGH(EDGE_PERMS * 64, 6),
+        // Same distances as CORNERS, one entry per class of U-D symmetric states:
+        // 5,522,520 entries, see SymCoordinates
+        CORNERS_SYM(SymCoordinates.N_CORNER_INDEX, -1);
+
+        final int size;
+        final int firstEdge;
+
+        Type(int size, int firstEdge) {
+            this.size = size;
+            this.firstEdge = firstEdge;
+        }
+
+        public int size() { return size; }
+    }
+
+    // Ordered placements of 6 tracked edges on 12 positions: 12 * 11 * ... * 7
+    private static final int EDGE_PERMS = 665280;
+    private static final int TRACKED_EDGES = 6;
+
+    // Marks an entry the search has not reached yet
+    static final int UNKNOWN = 0xF;
+
+    // EDGE_SLOT_MOVE[pos * 2 + ori][move] = slot a single edge lands on after move
+    private static final int[][] EDGE_SLOT_MOVE = new int[24][Coordinates.N_MOVES];
+
+    // FALLING[i] = 11 * 10 * ... * (12 - (5 - i)), the weight of the i-th digit of an edge placement rank
+    private static final int[] FALLING = new int[TRACKED_EDGES];
+
+    static {
+        int[] ep = new int[12], eo = new int[12];
+        RubiksCube cube = new RubiksCube();
+        for(int slot = 0; slot < 24; slot++){
+            int pos = slot >> 1;
+            for(int move = 0; move < Coordinates.N_MOVES; move++){
+                // Put edge 0 on pos (swap it with whatever lives there) and apply the move
+                Coordinates.identity(ep);
+                ep[0] = pos;
+                ep[pos] = 0;
+                Arrays.fill(eo, 0);
+                eo[pos] = slot & 1;
+                cube.setEdges(ep, eo);
+                cube.applyMove(move);
+                for(int p = 0; p < 12; p++){
+                    if(cube.getEdgePiece(p) == 0){
+                        EDGE_SLOT_MOVE[slot][move] = p * 2 + cube.getEdgeOrientation(p);
+                    }
+                }
+            }
+        }
+
+        for(int i = 0; i < TRACKED_EDGES; i++){
+            int weight = 1;
+            for(int k = 11 - i; k > 12 - TRACKED_EDGES; k--){
+                weight *= k;
+            }
+            FALLING[i] = weight;
+        }
+    }
+
+    private final Type type;
+    private final ByteBuffer entries;
+
+    PatternDatabase(Type type, ByteBuffer entries) {
+        if(entries.capacity() != byteSize(type)){
+            throw new IllegalArgumentException("Table for " + type + " must hold " + type.size + " entries");
+        }
+        this.type = type;
+        this.entries = entries;
+    }
+
+    public Type getType() { return type; }
+
+    /** Nibble-packed entries, shared, do not modify */
+    ByteBuffer entries() { return entries; }
+
+    static int byteSize(Type type) {
+        return (type.size + 1) / 2;
+    }
+
+    /**
+     * @return minimum number of moves to solve this database's pieces of cube
+     */
+    public int distance(RubiksCube cube) {
+        return get(entries, index(type, cube));
+    }
+
+    static int get(ByteBuffer entries, int index) {
+        return (entries.get(index >>> 1) >>> ((index & 1) << 2)) & 0xF;
+    }
+
+    static int get(byte[] entries, int index) {
+        return (entries[index >>> 1] >>> ((index & 1) << 2)) & 0xF;
+    }
+
+    private static void set(byte[] entries, int index, int value) {
+        int shift = (index & 1) << 2;
+        int b = index >>> 1;
+        entries[b] = (byte) ((entries[b] & ~(0xF << shift)) | (value << shift));
+    }
+
+    /**
+     * Index of cube's projection in the table of type
+     */
+    static int index(Type type, RubiksCube cube) {
+        if(type == Type.CORNERS){
+            return Coordinates.cornerPerm(cube) * Coordinates.N_TWIST + Coordinates.twist(cube);
+        }
+        if(type == Type.CORNERS_SYM){
+            return SymCoordinates.cornerIndex(cube);
+        }
+        // The inverse state has one lane per piece, holding its position and flip
+        long where = Symmetry.invertEdges(cube.edgeState());
+        int rank = 0, flips = 0, used = 0;
+        for(int i = 0; i < TRACKED_EDGES; i++){
+            int lane = (int) (where >>> ((type.firstEdge + i) * 5)) & 0x1F;
+            int pos = lane & 15;
+            rank += (pos - Integer.bitCount(used & ((1 << pos) - 1))) * FALLING[i];
+            used |= 1 << pos;
+            flips = (flips << 1) | (lane >>> 4);
+        }
+        return rank * 64 + flips;
+    }
+
+    /**
+     * Rank of the tracked edge slots: placement rank * 64 + flip bits
+     */
+    private static int edgeIndex(int[] slots) {
+        int rank = 0, flips = 0, used = 0;
+        for(int i = 0; i < TRACKED_EDGES; i++){
+            int pos = slots[i] >> 1;
+            // Number of free positions below pos
+            int digit = pos - Integer.bitCount(used & ((1 << pos) - 1));
+            rank += digit * FALLING[i];
+            used |= 1 << pos;
+            flips = (flips << 1) | (slots[i] & 1);
+        }
+        return rank * 64 + flips;
+    }
+
+    private static void edgeSlots(int index, int[] slots) {
+        int rank = index >>> 6, flips = index & 63, used = 0;
+        for(int i = 0; i < TRACKED_EDGES; i++){
+            int digit = rank / FALLING[i];
+            rank %= FALLING[i];
+            // Position of the digit-th free position
+            int pos = 0;
+            while(true){
+                if((used & (1 << pos)) == 0 && digit-- == 0){ break; }
+                pos++;
+            }
+            used |= 1 << pos;
+            slots[i] = pos * 2 + ((flips >> (TRACKED_EDGES - 1 - i)) & 1);
+        }
+    }
+
+    /**
+     * Breadth first search from the solved state over the whole table.
+     * Deterministic: the same type always produces byte-identical entries.
+     * @param log prints one line per depth when true
+     */
+    public static PatternDatabase generate(Type type, boolean log) {
+        byte[] entries = new byte[byteSize(type)];
+        Arrays.fill(entries, (byte) 0xFF);
+        set(entries, index(type, new RubiksCube()), 0);
+
+        int[] neighbours = new int[Coordinates.N_MOVES];
+        int[] slots = new int[TRACKED_EDGES];
+        int[] moved = new int[TRACKED_EDGES];
+        long reached = 1;
+        long start = System.currentTimeMillis();
+
+        for(int depth = 0; reached < type.size; depth++){
+            long found = 0;
+            // Once most states are known it is cheaper to scan the unknown
+            // ones and look for a neighbour on the current layer
+            boolean backward = reached > type.size / 2;
+
+            for(int i = 0; i < type.size; i++){
+                int value = get(entries, i);
+                if(backward ? value != UNKNOWN : value != depth){ continue; }
+
+                neighbours(type, i, neighbours, slots, moved);
+                for(int next: neighbours){
+                    if(backward){
+                        if(get(entries, next) == depth){
+                            set(entries, i, depth + 1);
+                            found++;
+                            break;
+                        }
+                    } else if(get(entries, next) == UNKNOWN){
+                        set(entries, next, depth + 1);
+                        found++;
+                    }
+                }
+            }
+            if(found == 0){
+                throw new IllegalStateException(type + ": search stalled at depth " + depth);
+            }
+            reached += found;
+            if(log){
+                System.out.println(type + " depth " + (depth + 1) + ": " + found + " states, "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        }
+        return new PatternDatabase(type, ByteBuffer.wrap(entries));
+    }
+
+    /**
+     * Fill out with the index reached by each of the 18 moves from index
+     */
+    private static void neighbours(Type type, int index, int[] out, int[] slots, int[] moved) {
+        if(type == Type.CORNERS){
+            int perm = index / Coordinates.N_TWIST;
+            int twist = index % Coordinates.N_TWIST;
+            int[] permRow = Coordinates.CORNER_PERM_MOVE[perm];
+            int[] twistRow = Coordinates.TWIST_MOVE[twist];
+            for(int m = 0; m < Coordinates.N_MOVES; m++){
+                out[m] = permRow[m] * Coordinates.N_TWIST + twistRow[m];
+            }
+            return;
+        }
+        if(type == Type.CORNERS_SYM){
+            // Expand the class representative, reduce every neighbour again
+            int perm = SymCoordinates.cornerRepresentative(SymCoordinates.indexClass(index));
+            int twist = SymCoordinates.indexTwist(index);
+            int[] permRow = Coordinates.CORNER_PERM_MOVE[perm];
+            int[] twistRow = Coordinates.TWIST_MOVE[twist];
+            for(int m = 0; m < Coordinates.N_MOVES; m++){
+                out[m] = SymCoordinates.cornerIndex(permRow[m], twistRow[m]);
+            }
+            return;
+        }
+        edgeSlots(index, slots);
+        for(int m = 0; m < Coordinates.N_MOVES; m++){
+            for(int i = 0; i < TRACKED_EDGES; i++){
+                moved[i] = EDGE_SLOT_MOVE[slots[i]][m];
+            }
+            out[m] = edgeIndex(moved);
+        }
+    }
+}
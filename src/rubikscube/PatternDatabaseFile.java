@@ -0,0 +1,159 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk format for pattern databases.
+ *
+ * Layout (big endian), a 32 byte header followed by the nibble-packed entries
+ * exactly as PatternDatabase keeps them in memory:
+ *   0  magic "RCPD"
+ *   4  format version
+ *   8  table type (PatternDatabase.Type ordinal)
+ *  12  number of entries
+ *  16  CRC32 of the entry bytes
+ *  24  reserved, 0
+ *
+ * Files are opened read-only and memory mapped, so loading costs a header read
+ * and concurrent solver processes on one host share the same page cache pages.
+ */
+public class PatternDatabaseFile {
+    public static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    private static final int MAGIC = 0x52435044; // "RCPD"
+
+    /**
+     * Default file name for a table type inside a pattern database directory
+     */
+    public static String fileName(PatternDatabase.Type type) {
+        return type.name().toLowerCase() + ".pdb";
+    }
+
+    /**
+     * Parsed file header
+     */
+    public static class Header {
+        public final int version;
+        public final PatternDatabase.Type type;
+        public final int entries;
+        public final long checksum;
+
+        Header(int version, PatternDatabase.Type type, int entries, long checksum) {
+            this.version = version;
+            this.type = type;
+            this.entries = entries;
+            this.checksum = checksum;
+        }
+
+        @Override
+        public String toString() {
+            return "version=" + version + ", type=" + type + ", entries=" + entries
+                    + ", checksum=" + String.format("%08x", checksum);
+        }
+    }
+
+    /**
+     * Write database to file, through a temporary file so readers never see a partial table
+     */
+    public static void write(PatternDatabase database, Path file) throws IOException {
+        ByteBuffer entries = database.entries().duplicate();
+        entries.clear();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(database.getType().ordinal());
+        header.putInt(database.getType().size());
+        header.putLong(checksum(entries));
+        header.putLong(0);
+        header.flip();
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            while(header.hasRemaining()){ channel.write(header); }
+            entries.clear();
+            while(entries.hasRemaining()){ channel.write(entries); }
+            channel.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read and validate the header only
+     * @throws IncorrectFormatException if the file is not a pattern database this version understands
+     */
+    public static Header readHeader(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            return readHeader(channel, file);
+        }
+    }
+
+    private static Header readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        while(header.hasRemaining()){
+            if(channel.read(header) < 0){
+                throw new IncorrectFormatException("Pattern database header truncated: " + file);
+            }
+        }
+        header.flip();
+        if(header.getInt() != MAGIC){
+            throw new IncorrectFormatException("Not a pattern database: " + file);
+        }
+        int version = header.getInt();
+        if(version != VERSION){
+            throw new IncorrectFormatException("Unsupported pattern database version " + version + ": " + file);
+        }
+        int ordinal = header.getInt();
+        PatternDatabase.Type[] types = PatternDatabase.Type.values();
+        if(ordinal < 0 || ordinal >= types.length){
+            throw new IncorrectFormatException("Unknown pattern database type " + ordinal + ": " + file);
+        }
+        PatternDatabase.Type type = types[ordinal];
+        int entries = header.getInt();
+        if(entries != type.size()){
+            throw new IncorrectFormatException("Wrong entry count for " + type + ": " + file);
+        }
+        long checksum = header.getLong();
+        if(channel.size() != HEADER_SIZE + (long) PatternDatabase.byteSize(type)){
+            throw new IncorrectFormatException("Pattern database has the wrong length: " + file);
+        }
+        return new Header(version, type, entries, checksum);
+    }
+
+    /**
+     * Memory map a database. Only the header is checked, use verify for the checksum
+     */
+    public static PatternDatabase load(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            Header header = readHeader(channel, file);
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE, PatternDatabase.byteSize(header.type));
+            return new PatternDatabase(header.type, entries);
+        }
+    }
+
+    /**
+     * @return true if the entries match the checksum stored in the header
+     */
+    public static boolean verify(Path file) throws IOException {
+        Header header = readHeader(file);
+        return checksum(load(file).entries().duplicate()) == header.checksum;
+    }
+
+    private static long checksum(ByteBuffer entries) {
+        CRC32 crc = new CRC32();
+        crc.update(entries);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,55 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Admissible heuristic backed by pattern databases: each database is an exact
+ * distance for part of the cube, so the maximum over them never overestimates.
+ */
+public class PatternDatabaseHeuristic implements Heuristic {
+    private final PatternDatabase[] databases;
+
+    public PatternDatabaseHeuristic(PatternDatabase... databases) {
+        if(databases == null || databases.length == 0){
+            throw new IllegalArgumentException("At least one pattern database is required");
+        }
+        this.databases = databases.clone();
+    }
+
+    /**
+     * Generate the symmetry-reduced corner database and both 6-edge databases in memory.
+     * This takes a while, see PatternDatabase.generate
+     */
+    public static PatternDatabaseHeuristic generateDefault(boolean log) {
+        return new PatternDatabaseHeuristic(
+                PatternDatabase.generate(PatternDatabase.Type.CORNERS_SYM, log),
+                PatternDatabase.generate(PatternDatabase.Type.EDGES_LOW, log),
+                PatternDatabase.generate(PatternDatabase.Type.EDGES_HIGH, log));
+    }
+
+    /**
+     * Memory map the three default databases from dir, see PatternDatabaseFile.fileName.
+     * The symmetry-reduced corner table is used instead of the full one when dir has it
+     */
+    public static PatternDatabaseHeuristic load(Path dir) throws IOException {
+        Path corners = dir.resolve(PatternDatabaseFile.fileName(PatternDatabase.Type.CORNERS_SYM));
+        if(!Files.exists(corners)){
+            corners = dir.resolve(PatternDatabaseFile.fileName(PatternDatabase.Type.CORNERS));
+        }
+        return new PatternDatabaseHeuristic(
+                PatternDatabaseFile.load(corners),
+                PatternDatabaseFile.load(dir.resolve(PatternDatabaseFile.fileName(PatternDatabase.Type.EDGES_LOW))),
+                PatternDatabaseFile.load(dir.resolve(PatternDatabaseFile.fileName(PatternDatabase.Type.EDGES_HIGH))));
+    }
+
+    @Override
+    public int calculate(RubiksCube cube) {
+        int max = 0;
+        for(PatternDatabase database: databases){
+            max = Math.max(max, database.distance(cube));
+        }
+        return max;
+    }
+}
@@ -3,12 +3,92 @@ package rubikscube;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class RubiksCube {
 
-    private final char[][] cubeState;
-    Corner[] corners;
-    Edge[] edges;
+    // Face indices
+    public static final int FRONT = 0, BACK = 1, RIGHT = 2, LEFT = 3, UP = 4, DOWN = 5;
+    public static final char[] FACES = {'F', 'B', 'R', 'L', 'U', 'D'};
+
+    // Moves are indexed face * 3 + (clockwise quarter turns - 1): F, F2, F', B, B2, B', ... D'
+    public static final int N_MOVES = 18;
+    private static final String[] MOVE_SUFFIX = {"", "2", "'"};
+
+    // Every cubie position is a 5 bit lane in a long
+    private static final int LANE_BITS = 5;
+    private static final int LANE_MASK = 0x1F;
+
+    private static final long SOLVED_CORNERS;
+    private static final long SOLVED_EDGES;
+    // Bit 0 of every corner lane and of every edge lane
+    private static final long CORNER_LANES;
+    private static final long EDGE_LANES;
+
+    // Per move: source/destination lane shifts of the 4 cycled positions,
+    // the twist added to each destination corner, and the mask of untouched lanes
+    private static final int[][] CORNER_SRC = new int[N_MOVES][4];
+    private static final int[][] CORNER_DST = new int[N_MOVES][4];
+    private static final int[][] CORNER_TWIST = new int[N_MOVES][4];
+    private static final long[] CORNER_KEEP = new long[N_MOVES];
+    private static final int[][] EDGE_SRC = new int[N_MOVES][4];
+    private static final int[][] EDGE_DST = new int[N_MOVES][4];
+    private static final int[] EDGE_FLIP = new int[N_MOVES];
+    private static final long[] EDGE_KEEP = new long[N_MOVES];
+
+    // TWIST_LANE[t][lane] is the corner lane with its orientation turned t times clockwise
+    private static final int[][] TWIST_LANE = new int[3][32];
+
+    static {
+        long c = 0, e = 0;
+        for(int i = 0; i < 8; i++){ c |= (long) i << (i * LANE_BITS); }
+        for(int i = 0; i < 12; i++){ e |= (long) i << (i * LANE_BITS); }
+        SOLVED_CORNERS = c;
+        SOLVED_EDGES = e;
+        long cl = 0, el = 0;
+        for(int i = 0; i < 8; i++){ cl |= 1L << (i * LANE_BITS); }
+        for(int i = 0; i < 12; i++){ el |= 1L << (i * LANE_BITS); }
+        CORNER_LANES = cl;
+        EDGE_LANES = el;
+
+        for(int t = 0; t < 3; t++){
+            for(int lane = 0; lane < 32; lane++){
+                TWIST_LANE[t][lane] = (lane & 7) | ((((lane >>> 3) + t) % 3) << 3);
+            }
+        }
+
+        // Cycles a -> b -> c -> d: the cubie at a moves to b, ...
+        // Twists are listed for the destination of each cubie in the cycle.
+        // Orientation counts clockwise turns of the cubie's U/D sticker
+        // away from the position's U/D facelet, so twists add mod 3.
+        // UFL -> UFR -> DFR -> DFL, UF -> FR -> DF -> FL
+        defineMove(FRONT, new int[]{0, 1, 5, 4}, new int[]{1, 2, 1, 2}, new int[]{0, 9, 4, 8}, 1);
+        // UBR -> UBL -> DBL -> DBR, UB -> BL -> DB -> BR
+        defineMove(BACK, new int[]{3, 2, 6, 7}, new int[]{1, 2, 1, 2}, new int[]{3, 10, 7, 11}, 1);
+        // UFR -> UBR -> DBR -> DFR, UR -> BR -> DR -> FR
+        defineMove(RIGHT, new int[]{1, 3, 7, 5}, new int[]{1, 2, 1, 2}, new int[]{2, 11, 6, 9}, 0);
+        // UBL -> UFL -> DFL -> DBL, UL -> FL -> DL -> BL
+        defineMove(LEFT, new int[]{2, 0, 4, 6}, new int[]{1, 2, 1, 2}, new int[]{1, 8, 5, 10}, 0);
+        // UBL -> UBR -> UFR -> UFL, UB -> UR -> UF -> UL
+        defineMove(UP, new int[]{2, 3, 1, 0}, new int[]{0, 0, 0, 0}, new int[]{3, 2, 0, 1}, 0);
+        // DFL -> DFR -> DBR -> DBL, DF -> DR -> DB -> DL
+        defineMove(DOWN, new int[]{4, 5, 7, 6}, new int[]{0, 0, 0, 0}, new int[]{4, 6, 7, 5}, 0);
+    }
+
+    /*
+     * Packed cubie state, one 5 bit lane per position:
+     * corners: piece id in bits 0-2, orientation (0-2) in bits 3-4, 8 lanes
+     * edges: piece id in bits 0-3, orientation (0-1) in bit 4, 12 lanes
+     */
+    private long corners;
+    private long edges;
+
+    // Facelet view of the cubies, see CubieMapper.NET_COLS. Only drawn when
+    // asked for: moves just set dirty, toString redraws and caches the text.
+    // text is valid whenever dirty is false
+    private char[] cubeState;
+    private String text;
+    private boolean dirty;
 
     /**
      * @param fileName file to read from
@@ -19,231 +99,422 @@ public class RubiksCube {
         if(fileName == null){
             throw new IllegalArgumentException("Filename must be valid");
         }
-        this.cubeState = new char[9][12];
+        this.cubeState = readNet(fileName);
+        CubieMapper.parse(cubeState, this);
+    }
 
+    /**
+     * Read the 9 x 12 character net from fileName into a flat array, without interpreting it
+     */
+    static char[] readNet(String fileName) throws IOException, IncorrectFormatException {
         // Read file 'fileName'
-        BufferedReader input = new BufferedReader(new FileReader(fileName));
+        try(BufferedReader input = new BufferedReader(new FileReader(fileName))){
+            return readNet(input, "Filename: " + fileName);
+        }
+    }
+
+    /**
+     * Read the 9 x 12 character net from the next lines of input
+     * @param source names the input in error messages
+     */
+    static char[] readNet(BufferedReader input, String source) throws IOException, IncorrectFormatException {
+        char[] net = new char[CubieMapper.NET_ROWS * CubieMapper.NET_COLS];
 
         // Read each line in the file
         String line;
-        for(int i = 0; i < cubeState.length; i++){
+        for(int i = 0; i < CubieMapper.NET_ROWS; i++){
             line = input.readLine();
 
             // Ensure we are reading only and all 9 rows
             if(line == null){
-                throw new IncorrectFormatException("Incorrect format, Filename: " + fileName);
+                throw new IncorrectFormatException("Incorrect format, " + source);
             }
 
             // Each row has a maximum of 12 chars
-            if(line.length() > cubeState[i].length){
-                throw new IncorrectFormatException("Incorrect format, Filename: " + fileName);
+            if(line.length() > CubieMapper.NET_COLS){
+                throw new IncorrectFormatException("Incorrect format, " + source);
             }
 
             // Store our read data onto our cube
-            for(int j = 0; j < line.length(); j++){
-                cubeState[i][j] = line.charAt(j);
-            }
+            line.getChars(0, line.length(), net, i * CubieMapper.NET_COLS);
         }
-        this.corners = CubieMapper.getCorners(cubeState);
-        this.edges = CubieMapper.getEdges(cubeState);
-        input.close();
+        return net;
     }
 
     /**
-     * Applies the sequence of moves on the Rubik's Cube
+     * Creates a solved Rubik's Cube
      */
-    public void applyMoves(String moves) {
+    public RubiksCube() {
+        this.corners = SOLVED_CORNERS;
+        this.edges = SOLVED_EDGES;
+        this.dirty = true;
+    }
+
+    /**
+     * Copy constructor, the cached text is shared but the net is drawn again when needed
+     */
+    private RubiksCube(RubiksCube other) {
+        this.corners = other.corners;
+        this.edges = other.edges;
+        this.text = other.text;
+        this.dirty = other.dirty;
+    }
+
+    /**
+     * Fill in the tables of the quarter, half and inverse turn of one face
+     * @param cornerCycle 4 corner positions, a clockwise turn moves each cubie to the next one
+     * @param twist twist added to the cubie arriving at each cornerCycle entry's successor
+     * @param edgeCycle 4 edge positions, a clockwise turn moves each cubie to the next one
+     * @param flip 1 if a quarter turn flips the 4 edges
+     */
+    private static void defineMove(int face, int[] cornerCycle, int[] twist, int[] edgeCycle, int flip) {
+        long cornerKeep = -1L, edgeKeep = -1L;
+        for(int i = 0; i < 4; i++){
+            cornerKeep &= ~((long) LANE_MASK << (cornerCycle[i] * LANE_BITS));
+            edgeKeep &= ~((long) LANE_MASK << (edgeCycle[i] * LANE_BITS));
+        }
+
+        for(int turns = 1; turns <= 3; turns++){
+            int move = face * 3 + turns - 1;
+            for(int i = 0; i < 4; i++){
+                // Each quarter turn moves the cubie one step along the cycle
+                int totalTwist = 0;
+                for(int k = 0; k < turns; k++){
+                    totalTwist += twist[(i + k) % 4];
+                }
+                int next = (i + turns) % 4;
+                CORNER_SRC[move][i] = cornerCycle[i] * LANE_BITS;
+                CORNER_DST[move][i] = cornerCycle[next] * LANE_BITS;
+                CORNER_TWIST[move][i] = totalTwist % 3;
 
-        for(int i = 0; i < moves.length(); i++) {
-            char move = moves.charAt(i);
-
-            switch (move) {
-                case 'F':
-                    moveFront();
-                    break;
-                case 'B':
-                    moveBack();
-                    break;
-                case 'R':
-                    moveRight();
-                    break;
-                case 'L':
-                    moveLeft();
-                    break;
-                case 'U':
-                    moveUp();
-                    break;
-                case 'D':
-                    moveDown();
-                    break;
+                EDGE_SRC[move][i] = edgeCycle[i] * LANE_BITS;
+                EDGE_DST[move][i] = edgeCycle[next] * LANE_BITS;
             }
+            CORNER_KEEP[move] = cornerKeep;
+            EDGE_KEEP[move] = edgeKeep;
+            EDGE_FLIP[move] = ((flip * turns) & 1) << 4;
         }
     }
 
     /**
-     * Rotate front face 90 degrees clockwise
+     * Applies the sequence of moves on the Rubik's Cube.
+     * Each move is a face letter, optionally followed by 2 (half turn) or '
+     * (counter-clockwise), whitespace is ignored: "F2 R' U", "FFRRRU" and "F2R'U" are the same
+     * @throws IncorrectFormatException on any other character
      */
-    public void moveFront() {
-        // UFL -> UFR -> DFR -> DFL
-        cycleCornersClockwise(0, 1, 5, 4);
+    public void applyMoves(String moves) {
+        for(int next = nextMove(moves, 0); next >= 0; next = nextMove(moves, next >>> 5)){
+            applyMove(next & 0x1F);
+        }
+    }
 
-        // Update corner orientations **after cycling**
-        corners[0].setOrientation((corners[0].getOrientation() + 1) % 3);
-        corners[1].setOrientation((corners[1].getOrientation() + 2) % 3);
-        corners[5].setOrientation((corners[5].getOrientation() + 1) % 3);
-        corners[4].setOrientation((corners[4].getOrientation() + 2) % 3);
+    /**
+     * Move indices of a sequence in the notation accepted by applyMoves
+     * @throws IncorrectFormatException on unknown characters
+     */
+    public static int[] parseMoves(String moves) {
+        int[] result = new int[moves.length()];
+        int length = 0;
+        for(int next = nextMove(moves, 0); next >= 0; next = nextMove(moves, next >>> 5)){
+            result[length++] = next & 0x1F;
+        }
+        return Arrays.copyOf(result, length);
+    }
 
-        // UF -> FR -> DF -> FL
-        cycleEdgesClockwise(0, 9, 4, 8);
+    /**
+     * Read the first move at or after index i of moves
+     * @return the index after it << 5 | the move, -1 if only whitespace is left
+     * @throws IncorrectFormatException on unknown characters
+     */
+    private static int nextMove(String moves, int i) {
+        while(i < moves.length() && Character.isWhitespace(moves.charAt(i))){
+            i++;
+        }
+        if(i == moves.length()){
+            return -1;
+        }
+        char c = moves.charAt(i++);
+        int face = faceIndex(c);
+        if(face < 0){
+            throw new IncorrectFormatException("Unknown move '" + c + "' in: " + moves);
+        }
 
-        edges[0].setOrientation((edges[0].getOrientation() + 1) % 2);
-        edges[9].setOrientation((edges[9].getOrientation() + 1) % 2);
-        edges[4].setOrientation((edges[4].getOrientation() + 1) % 2);
-        edges[8].setOrientation((edges[8].getOrientation() + 1) % 2);
+        int turns = 1;
+        if(i < moves.length()){
+            char suffix = moves.charAt(i);
+            if(suffix == '2'){
+                turns = 2;
+                i++;
+            } else if(suffix == '\''){
+                turns = 3;
+                i++;
+            }
+        }
+        return i << 5 | (face * 3 + turns - 1);
     }
 
     /**
-     * Rotate back face 90 degrees clockwise
+     * Index of a face letter in FACES, or -1 if it is not a face
      */
-    public void moveBack() {
-        // UBR -> UBL -> DBL -> DBR
-        cycleCornersClockwise(3, 2, 6, 7);
+    static int faceIndex(char face) {
+        switch (face) {
+            case 'F': return FRONT;
+            case 'B': return BACK;
+            case 'R': return RIGHT;
+            case 'L': return LEFT;
+            case 'U': return UP;
+            case 'D': return DOWN;
+            default: return -1;
+        }
+    }
 
-        corners[3].setOrientation((corners[3].getOrientation() + 1) % 3);
-        corners[2].setOrientation((corners[2].getOrientation() + 2) % 3);
-        corners[6].setOrientation((corners[6].getOrientation() + 1) % 3);
-        corners[7].setOrientation((corners[7].getOrientation() + 2) % 3);
+    /**
+     * @return the move that undoes move: F <-> F', F2 stays F2
+     */
+    public static int inverse(int move) {
+        return move - move % 3 + 2 - move % 3;
+    }
 
-        // UB -> BL -> DB -> BR
-        cycleEdgesClockwise(3, 10, 7, 11);
+    /**
+     * @return the move in standard notation, e.g. "F", "R2" or "U'"
+     */
+    public static String moveName(int move) {
+        return FACES[move / 3] + MOVE_SUFFIX[move % 3];
+    }
 
-        edges[3].setOrientation((edges[3].getOrientation() + 1) % 2);
-        edges[10].setOrientation((edges[10].getOrientation() + 1) % 2);
-        edges[7].setOrientation((edges[7].getOrientation() + 1) % 2);
-        edges[11].setOrientation((edges[11].getOrientation() + 1) % 2);
+    /**
+     * Write moves as a space separated string in standard notation
+     */
+    public static String movesToString(int[] moves, int length) {
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < length; i++){
+            if(i > 0){
+                sb.append(' ');
+            }
+            sb.append(FACES[moves[i] / 3]).append(MOVE_SUFFIX[moves[i] % 3]);
+        }
+        return sb.toString();
     }
 
     /**
-     * Rotate right face 90 degrees clockwise
+     * Apply one move using the precomputed move tables.
+     * Only the 4 corner and 4 edge lanes touched by the move are rewritten,
+     * nothing is allocated.
+     * @param move face * 3 + quarter turns - 1, see N_MOVES
      */
-    public void moveRight() {
-        // UFR -> UBR -> DBR -> DFR
-        cycleCornersClockwise(1, 3, 7, 5);
+    public void applyMove(int move) {
+        long c = corners & CORNER_KEEP[move];
+        long e = edges & EDGE_KEEP[move];
+        int[] cornerSrc = CORNER_SRC[move];
+        int[] cornerDst = CORNER_DST[move];
+        int[] edgeSrc = EDGE_SRC[move];
+        int[] edgeDst = EDGE_DST[move];
+
+        for(int i = 0; i < 4; i++) {
+            int lane = (int) (corners >>> cornerSrc[i]) & LANE_MASK;
+            c |= (long) TWIST_LANE[CORNER_TWIST[move][i]][lane] << cornerDst[i];
+
+            lane = (int) (edges >>> edgeSrc[i]) & LANE_MASK;
+            e |= (long) (lane ^ EDGE_FLIP[move]) << edgeDst[i];
+        }
+        corners = c;
+        edges = e;
+        dirty = true;
+    }
 
-        corners[1].setOrientation((corners[1].getOrientation() + 1) % 3);
-        corners[3].setOrientation((corners[3].getOrientation() + 2) % 3);
-        corners[7].setOrientation((corners[7].getOrientation() + 1) % 3);
-        corners[5].setOrientation((corners[5].getOrientation() + 2) % 3);
+    /**
+     * Rotate front face 90 degrees clockwise
+     */
+    public void moveFront() { applyMove(FRONT * 3); }
 
-        // UR -> BR -> DR -> FR
-        cycleEdgesClockwise(2, 11, 6, 9);
-    }
+    /**
+     * Rotate back face 90 degrees clockwise
+     */
+    public void moveBack() { applyMove(BACK * 3); }
+
+    /**
+     * Rotate right face 90 degrees clockwise
+     */
+    public void moveRight() { applyMove(RIGHT * 3); }
 
     /**
      * Rotate left face 90 degrees clockwise
      */
-    public void moveLeft() {
-        // UBL -> UFL -> DFL -> DBL
-        cycleCornersClockwise(2, 0, 4, 6);
+    public void moveLeft() { applyMove(LEFT * 3); }
 
-        corners[2].setOrientation((corners[2].getOrientation() + 1) % 3);
-        corners[0].setOrientation((corners[0].getOrientation() + 2) % 3);
-        corners[4].setOrientation((corners[4].getOrientation() + 1) % 3);
-        corners[6].setOrientation((corners[6].getOrientation() + 2) % 3);
+    /**
+     * Rotate up face 90 degrees clockwise
+     */
+    public void moveUp() { applyMove(UP * 3); }
 
-        // UL -> FL -> DL -> BL
-        cycleEdgesClockwise(1, 8, 5, 10);
-    }
+    /**
+     * Rotate down face 90 degrees clockwise
+     */
+    public void moveDown() { applyMove(DOWN * 3); }
 
     /**
-     * Rotate up face 90 degrees clockwise
-     * No corner orientation changes
+     * Check if cube is solved using cubie representation
+     * All pieces must be in their home positions with orientation 0
+     */
+    public boolean isSolved() {
+        return corners == SOLVED_CORNERS && edges == SOLVED_EDGES;
+    }
+
+    /*
+     * Finding unsolved cubies without a loop: XOR with the solved state leaves
+     * a lane non-zero exactly where the cubie differs, and anyLane folds each
+     * lane onto its bit 0.
      */
-    public void moveUp() {
-        // UBL -> UBR -> UFR -> UFL
-        cycleCornersClockwise(2, 3, 1, 0);
 
-        // UB -> UR -> UF -> UL
-        cycleEdgesClockwise(3, 2, 0, 1);
+    /** Bit 0 of each corner lane that is not solved, piece or orientation */
+    long unsolvedCornerLanes() {
+        return anyLane(corners ^ SOLVED_CORNERS) & CORNER_LANES;
+    }
+
+    /** Bit 0 of each edge lane that is not solved, piece or orientation */
+    long unsolvedEdgeLanes() {
+        return anyLane(edges ^ SOLVED_EDGES) & EDGE_LANES;
     }
 
     /**
-     * Rotate down face 90 degrees clockwise
-     * No corner orientation changes
+     * Bit 0 of each lane of the result is the OR of the lane's 5 bits, the
+     * other bits are garbage
+     */
+    private static long anyLane(long x) {
+        long y = x | x >>> 1;
+        return y | y >>> 2 | x >>> 4;
+    }
+
+    /**
+     * @return an independent cube with the same cubie state
      */
-    public void moveDown() {
-        // DFL -> DFR -> DBR -> DBL
-        cycleCornersClockwise(4, 5, 7, 6);
+    public RubiksCube copy() {
+        return new RubiksCube(this);
+    }
 
-        // DF -> DR -> DB -> DL
-        cycleEdgesClockwise(4, 6, 7, 5);
+    /**
+     * Overwrite this cube's state with other's, without allocating
+     */
+    public void copyFrom(RubiksCube other) {
+        this.corners = other.corners;
+        this.edges = other.edges;
+        this.text = other.text;
+        this.dirty = other.dirty;
     }
 
+    public int getCornerPiece(int pos) { return (int) (corners >>> (pos * LANE_BITS)) & 7; }
+    public int getCornerOrientation(int pos) { return (int) (corners >>> (pos * LANE_BITS + 3)) & 3; }
+    public int getEdgePiece(int pos) { return (int) (edges >>> (pos * LANE_BITS)) & 15; }
+    public int getEdgeOrientation(int pos) { return (int) (edges >>> (pos * LANE_BITS + 4)) & 1; }
 
     /**
-     * Helper method to cycle 4 corners clockwise
-     * Example: a -> b -> c -> d -> a
+     * Overwrite all corners, piece[i] with orientation ori[i] goes to position i
      */
-    private void cycleCornersClockwise(int a, int b, int c, int d) {
-        Corner temp = corners[a];
-        corners[a] = corners[d];
-        corners[d] = corners[c];
-        corners[c] = corners[b];
-        corners[b] = temp;
+    void setCorners(int[] piece, int[] ori) {
+        long c = 0;
+        for(int i = 0; i < 8; i++){
+            c |= (long) (piece[i] | (ori[i] << 3)) << (i * LANE_BITS);
+        }
+        corners = c;
+        dirty = true;
     }
 
     /**
-     * Helper method to cycle 4 edges clockwise
-     * Example: a -> b -> c -> d -> a
+     * Overwrite all edges, piece[i] with orientation ori[i] goes to position i
      */
-    private void cycleEdgesClockwise(int a, int b, int c, int d) {
-        Edge temp = edges[a];
-        edges[a] = edges[d];
-        edges[d] = edges[c];
-        edges[c] = edges[b];
-        edges[b] = temp;
+    void setEdges(int[] piece, int[] ori) {
+        long e = 0;
+        for(int i = 0; i < 12; i++){
+            e |= (long) (piece[i] | (ori[i] << 4)) << (i * LANE_BITS);
+        }
+        edges = e;
+        dirty = true;
     }
 
+    /** Packed corner lanes, see the field comment */
+    long cornerState() { return corners; }
+
+    /** Packed edge lanes, see the field comment */
+    long edgeState() { return edges; }
+
     /**
-     * Check if cube is solved using cubie representation
-     * All pieces must be in their home positions with orientation 0
+     * Overwrite both packed states at once, see the field comment. Only the
+     * layout is checked, not whether face turns can reach the state; states
+     * from outside go through CubieMapper.validate first
+     * @throws IncorrectFormatException if the lanes are not a permutation of
+     * the pieces with orientations in range
      */
-    public boolean isSolved() {
-        // Check all corners are in home position with correct orientation
-        for(int i = 0; i < 8; i++) {
-            if(corners[i].getPieceId() != i || corners[i].getOrientation() != 0) {
-                return false;
-            }
+    void setState(long corners, long edges) {
+        if(!isPermutation(corners, edges)){
+            throw new IncorrectFormatException("Invalid packed cube state");
         }
+        this.corners = corners;
+        this.edges = edges;
+        this.dirty = true;
+    }
 
-        // Check all edges are in home position with correct orientation
-        for(int i = 0; i < 12; i++) {
-            if(edges[i].getPieceId() != i || edges[i].getOrientation() != 0) {
-                return false;
-            }
+    /**
+     * @return true if the lanes hold every corner and every edge once, with
+     * orientations in range and the unused high bits clear
+     */
+    static boolean isPermutation(long corners, long edges) {
+        int seenCorners = 0, seenEdges = 0;
+        for(int i = 0; i < 8; i++){
+            int lane = (int) (corners >>> (i * LANE_BITS)) & LANE_MASK;
+            if((lane >>> 3) > 2){ return false; }
+            seenCorners |= 1 << (lane & 7);
         }
+        for(int i = 0; i < 12; i++){
+            int lane = (int) (edges >>> (i * LANE_BITS)) & LANE_MASK;
+            if((lane & 15) > 11){ return false; }
+            seenEdges |= 1 << (lane & 15);
+        }
+        return seenCorners == 0xFF && seenEdges == 0xFFF && (corners >>> 40) == 0 && (edges >>> 60) == 0;
+    }
 
-        return true;
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof RubiksCube)){ return false; }
+        RubiksCube other = (RubiksCube) o;
+        return corners == other.corners && edges == other.edges;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(corners * 31 + edges);
     }
 
+    /**
+     * The net in the input file format, drawn from the current cubies. The
+     * text is cached until the next move
+     */
     @Override
     public String toString() {
+        if(dirty){
+            cubeState = cubeState == null ? CubieMapper.toNet(this) : CubieMapper.toNet(this, cubeState);
+            text = netToString(cubeState);
+            dirty = false;
+        }
+        return text;
+    }
+
+    /**
+     * Write a net in the input file format: 9 lines, the rows holding only
+     * the up or down face are cut after 6 characters
+     */
+    static String netToString(char[] net) {
         StringBuilder sb = new StringBuilder();
 
-        // Must turn our 2D array into a String
-        for(int i = 0; i < cubeState.length; i++){
+        // Must turn our net into a String
+        for(int i = 0; i < CubieMapper.NET_ROWS; i++){
             if(i < 3 || i > 5) {
                 // Rows 0-2 and 6-8: Output only 6 chars including spaces
-                for (int j = 0; j < 6; j++) {
-                    sb.append(cubeState[i][j]);
-                }
+                sb.append(net, i * CubieMapper.NET_COLS, 6);
             }
 
             else{
                 // Rows 3-5: Outrputs all 12 chars
-                for(int j = 0; j < 12; j++){
-                    sb.append(cubeState[i][j]);
-                }
+                sb.append(net, i * CubieMapper.NET_COLS, CubieMapper.NET_COLS);
             }
             sb.append('\n');
         }
@@ -252,12 +523,25 @@ public class RubiksCube {
         return sb.toString();
     }
 
+    /**
+     * Unpack the corners into objects, intended for debugging output only
+     */
     public Corner[] getCorners(){
-        return this.corners;
+        Corner[] result = new Corner[8];
+        for(int i = 0; i < 8; i++){
+            result[i] = CubieMapper.newCorner(getCornerPiece(i), getCornerOrientation(i));
+        }
+        return result;
     }
 
+    /**
+     * Unpack the edges into objects, intended for debugging output only
+     */
     public Edge[] getEdges(){
-        return this.edges;
+        Edge[] result = new Edge[12];
+        for(int i = 0; i < 12; i++){
+            result[i] = CubieMapper.newEdge(getEdgePiece(i), getEdgeOrientation(i));
+        }
+        return result;
     }
 }
-
@@ -0,0 +1,197 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reproducible streams of scrambled cubes for load tests and benchmarks,
+ * either uniformly random states or a fixed number of random face turns.
+ *
+ * A random state is drawn directly in the packed cubie form: random corner
+ * and edge permutations, random twists and flips with the last corner and
+ * edge fixed so the totals are 0 mod 3 and even, and two edges swapped when
+ * the two permutation parities differ. Every reachable state comes out with
+ * the same probability. Random move scrambles only use move sequences the
+ * MoveAutomaton accepts, so a turn never cancels or merges with the turn
+ * before it.
+ *
+ * Cubes are generated in blocks of BLOCK_SIZE, block b from its own generator
+ * seeded by seed and b, so the output for a seed is the same for any number
+ * of threads.
+ */
+public class ScrambleGenerator {
+    public static final int BLOCK_SIZE = 1 << 16;
+    // Depth that marks uniformly random states rather than random moves
+    private static final int RANDOM_STATE = -1;
+    // Blocks generated ahead of the consumer per thread
+    private static final int BLOCKS_PER_THREAD = 2;
+    private static final RubiksCube SOLVED = new RubiksCube();
+
+    private final long seed;
+    private final int depth;
+
+    private ScrambleGenerator(long seed, int depth) {
+        this.seed = seed;
+        this.depth = depth;
+    }
+
+    /**
+     * Uniformly random reachable states
+     */
+    public static ScrambleGenerator randomStates(long seed) {
+        return new ScrambleGenerator(seed, RANDOM_STATE);
+    }
+
+    /**
+     * depth random face turns from solved, no two in a row on the same face
+     */
+    public static ScrambleGenerator randomMoves(int depth, long seed) {
+        if(depth < 0){
+            throw new IllegalArgumentException("Negative scramble depth " + depth);
+        }
+        return new ScrambleGenerator(seed, depth);
+    }
+
+    interface CubeConsumer {
+        void accept(RubiksCube cube) throws IOException;
+    }
+
+    /**
+     * Overwrite into with a random state
+     */
+    public static void randomState(SplittableRandom random, RubiksCube into) {
+        int[] corners = {0, 1, 2, 3, 4, 5, 6, 7};
+        int[] edges = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+        int parity = shuffle(random, corners) ^ shuffle(random, edges);
+        if(parity != 0){
+            int swap = edges[10];
+            edges[10] = edges[11];
+            edges[11] = swap;
+        }
+
+        long cornerState = 0;
+        int twist = 0;
+        for(int pos = 0; pos < 8; pos++){
+            int ori = pos < 7 ? random.nextInt(3) : (3 - twist % 3) % 3;
+            twist += ori;
+            cornerState |= (long) (corners[pos] | ori << 3) << (pos * 5);
+        }
+        // All twelve flips are one draw of 11 random bits, the last edge evens them out
+        int flips = random.nextInt(1 << 11);
+        flips |= (Integer.bitCount(flips) & 1) << 11;
+        long edgeState = 0;
+        for(int pos = 0; pos < 12; pos++){
+            edgeState |= (long) (edges[pos] | (flips >>> pos & 1) << 4) << (pos * 5);
+        }
+        into.setState(cornerState, edgeState);
+    }
+
+    /**
+     * Fisher-Yates shuffle
+     * @return the parity of the permutation, 0 even, 1 odd
+     */
+    private static int shuffle(SplittableRandom random, int[] perm) {
+        int parity = 0;
+        for(int i = perm.length - 1; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            if(j != i){
+                int swap = perm[i];
+                perm[i] = perm[j];
+                perm[j] = swap;
+                parity ^= 1;
+            }
+        }
+        return parity;
+    }
+
+    /**
+     * Overwrite into with depth random face turns applied to solved
+     */
+    public static void randomMoves(SplittableRandom random, int depth, RubiksCube into) {
+        into.copyFrom(SOLVED);
+        int state = MoveAutomaton.START;
+        for(int i = 0; i < depth; i++){
+            int move, next;
+            do {
+                move = random.nextInt(RubiksCube.N_MOVES);
+                next = MoveAutomaton.HALF_TURNS.next(state, move);
+            } while(next < 0);
+            into.applyMove(move);
+            state = next;
+        }
+    }
+
+    /**
+     * Overwrite into with the next scramble of random
+     */
+    public void next(SplittableRandom random, RubiksCube into) {
+        if(depth == RANDOM_STATE){
+            randomState(random, into);
+        } else {
+            randomMoves(random, depth, into);
+        }
+    }
+
+    /**
+     * The generator of block, the same for every run with this seed
+     */
+    private SplittableRandom blockRandom(long block) {
+        return new SplittableRandom(seed ^ (block + 1) * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * count cubes of block, as packed corner and edge states in turn
+     */
+    private long[] generateBlock(long block, int count) {
+        SplittableRandom random = blockRandom(block);
+        RubiksCube cube = new RubiksCube();
+        long[] states = new long[count * 2];
+        for(int i = 0; i < count; i++){
+            next(random, cube);
+            states[2 * i] = cube.cornerState();
+            states[2 * i + 1] = cube.edgeState();
+        }
+        return states;
+    }
+
+    /**
+     * Generate the first count cubes of this seed on threads and hand them to
+     * action in order, on the calling thread. The cube passed is reused, copy
+     * it to keep it
+     */
+    public void generate(long count, int threads, CubeConsumer action) throws IOException, InterruptedException {
+        if(threads < 1){
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<long[]>> pending = new ArrayDeque<>();
+        RubiksCube cube = new RubiksCube();
+        long blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        long submitted = 0;
+        try {
+            while(submitted < blocks || !pending.isEmpty()){
+                while(submitted < blocks && pending.size() < threads * BLOCKS_PER_THREAD){
+                    long block = submitted++;
+                    int size = (int) Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE);
+                    pending.add(pool.submit(() -> generateBlock(block, size)));
+                }
+                long[] states = pending.poll().get();
+                for(int i = 0; i < states.length; i += 2){
+                    cube.setState(states[i], states[i + 1]);
+                    action.accept(cube);
+                }
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("Scramble generation failed", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package rubikscube;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * What an IDA* solve spent its time on, one Iteration per threshold.
+ *
+ * Search workers count into plain longs of their own and merge them into the
+ * iteration once their subtree is done, so the counters cost a few increments
+ * per node and no synchronization in the search itself.
+ */
+public class SearchMetrics {
+    // Heuristic values at or above the last bucket share it
+    public static final int HISTOGRAM_SIZE = 32;
+
+    /**
+     * Counters of one IDA* iteration
+     */
+    public static final class Iteration {
+        private final int threshold;
+        private long nodes;
+        private long cutoffs;
+        private long tableCutoffs;
+        private final long[] histogram = new long[HISTOGRAM_SIZE];
+        private long nanos;
+        private boolean complete;
+
+        Iteration(int threshold){
+            this.threshold = threshold;
+        }
+
+        public int getThreshold(){ return threshold; }
+        public long getNodes(){ return nodes; }
+        /** Nodes whose f exceeded the threshold */
+        public long getCutoffs(){ return cutoffs; }
+        /** Nodes cut off by a bound from the transposition table rather than the heuristic */
+        public long getTableCutoffs(){ return tableCutoffs; }
+        public long getNanos(){ return nanos; }
+        /** False if the iteration stopped early, at a solution or at the deadline */
+        public boolean isComplete(){ return complete; }
+
+        /**
+         * @return how many expanded nodes had heuristic h
+         */
+        public long getHeuristicCount(int h){
+            return histogram[Math.min(h, HISTOGRAM_SIZE - 1)];
+        }
+
+        public double nodesPerSecond(){
+            return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+        }
+    }
+
+    /**
+     * One worker's counters, merged into the current iteration when it is done
+     */
+    static final class Counters {
+        long nodes;
+        long cutoffs;
+        long tableCutoffs;
+        final long[] histogram = new long[HISTOGRAM_SIZE];
+
+        void heuristic(int h){
+            histogram[Math.min(h, HISTOGRAM_SIZE - 1)]++;
+        }
+    }
+
+    private final List<Iteration> iterations = new ArrayList<>();
+    private Iteration current;
+    private int initialHeuristic;
+    private int solutionLength = -1;
+    private boolean timedOut;
+    private long start = System.nanoTime();
+    private long nanos;
+
+    void begin(int initialHeuristic){
+        this.initialHeuristic = initialHeuristic;
+        this.start = System.nanoTime();
+    }
+
+    void beginIteration(int threshold){
+        current = new Iteration(threshold);
+        iterations.add(current);
+    }
+
+    synchronized void merge(Counters counters){
+        current.nodes += counters.nodes;
+        current.cutoffs += counters.cutoffs;
+        current.tableCutoffs += counters.tableCutoffs;
+        for(int h = 0; h < HISTOGRAM_SIZE; h++){
+            current.histogram[h] += counters.histogram[h];
+        }
+    }
+
+    void endIteration(long iterationNanos, boolean complete){
+        current.nanos = iterationNanos;
+        current.complete = complete;
+    }
+
+    /**
+     * @param solutionLength moves of the solution returned, -1 for none
+     */
+    void end(int solutionLength, boolean timedOut){
+        this.solutionLength = solutionLength;
+        this.timedOut = timedOut;
+        this.nanos = System.nanoTime() - start;
+    }
+
+    public List<Iteration> getIterations(){
+        return Collections.unmodifiableList(iterations);
+    }
+
+    public int getInitialHeuristic(){ return initialHeuristic; }
+    public int getSolutionLength(){ return solutionLength; }
+    public boolean isTimedOut(){ return timedOut; }
+    public long getNanos(){ return nanos; }
+
+    public synchronized long getNodes(){
+        long nodes = 0;
+        for(Iteration iteration: iterations){
+            nodes += iteration.nodes;
+        }
+        return nodes;
+    }
+
+    /**
+     * Growth of the tree from the previous threshold to iteration i, nodes(i) / nodes(i - 1)
+     * @return NaN for the first iteration
+     */
+    public double branchingFactor(int i){
+        if(i == 0 || iterations.get(i - 1).nodes == 0){ return Double.NaN; }
+        return (double) iterations.get(i).nodes / iterations.get(i - 1).nodes;
+    }
+
+    /**
+     * The b for which a uniform tree as deep as the threshold of the last
+     * complete iteration has as many nodes: 1 + b + ... + b^d = nodes
+     * @return NaN before any iteration completed
+     */
+    public double effectiveBranchingFactor(){
+        Iteration last = null;
+        for(Iteration iteration: iterations){
+            if(iteration.complete){ last = iteration; }
+        }
+        if(last == null){ return Double.NaN; }
+        int depth = last.threshold;
+        if(depth <= 0 || last.nodes <= 1){ return 0; }
+        double low = 0, high = RubiksCube.N_MOVES;
+        for(int i = 0; i < 60; i++){
+            double b = (low + high) / 2, sum = 1, power = 1;
+            for(int d = 1; d <= depth; d++){
+                power *= b;
+                sum += power;
+            }
+            if(sum < last.nodes){
+                low = b;
+            } else {
+                high = b;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    /**
+     * One JSON object; the heuristic histograms stop at their last non-zero bucket
+     */
+    public synchronized String toJson(){
+        StringBuilder json = new StringBuilder();
+        json.append("{\"initialHeuristic\":").append(initialHeuristic)
+                .append(",\"solutionLength\":").append(solutionLength)
+                .append(",\"timedOut\":").append(timedOut)
+                .append(",\"millis\":").append(number(nanos / 1e6))
+                .append(",\"nodes\":").append(getNodes())
+                .append(",\"effectiveBranchingFactor\":").append(number(effectiveBranchingFactor()))
+                .append(",\"iterations\":[");
+        for(int i = 0; i < iterations.size(); i++){
+            Iteration iteration = iterations.get(i);
+            if(i > 0){ json.append(','); }
+            json.append("{\"threshold\":").append(iteration.threshold)
+                    .append(",\"complete\":").append(iteration.complete)
+                    .append(",\"nodes\":").append(iteration.nodes)
+                    .append(",\"millis\":").append(number(iteration.nanos / 1e6))
+                    .append(",\"nodesPerSecond\":").append(number(iteration.nodesPerSecond()))
+                    .append(",\"branchingFactor\":").append(number(branchingFactor(i)))
+                    .append(",\"cutoffs\":").append(iteration.cutoffs)
+                    .append(",\"tableCutoffs\":").append(iteration.tableCutoffs)
+                    .append(",\"heuristicHistogram\":[");
+            int used = HISTOGRAM_SIZE;
+            while(used > 0 && iteration.histogram[used - 1] == 0){
+                used--;
+            }
+            for(int h = 0; h < used; h++){
+                if(h > 0){ json.append(','); }
+                json.append(iteration.histogram[h]);
+            }
+            json.append("]}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * JSON has no NaN
+     */
+    private static String number(double value){
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    @Override
+    public String toString(){
+        return toJson();
+    }
+}
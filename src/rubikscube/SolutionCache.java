@@ -0,0 +1,241 @@
+package rubikscube;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers solutions by the canonical form of the cube, so a repeated cube,
+ * or one that is a symmetric copy (any of the 48 symmetries, see Symmetry)
+ * or the inverse of a solved one, is answered without searching.
+ *
+ * The canonical form is the smallest packed state among the conjugates of the
+ * cube and of its inverse. Solutions are stored for the canonical cube and
+ * turned back into the caller's orientation on a hit. The least recently used
+ * entry is dropped once capacity is reached. All methods are thread safe.
+ */
+public class SolutionCache {
+    private final int capacity;
+    private final LinkedHashMap<Key, byte[]> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Packed canonical state
+     */
+    private static final class Key {
+        final long corners, edges;
+
+        Key(long corners, long edges){
+            this.corners = corners;
+            this.edges = edges;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof Key)){ return false; }
+            Key other = (Key) o;
+            return corners == other.corners && edges == other.edges;
+        }
+
+        @Override
+        public int hashCode(){
+            return Long.hashCode(corners * 0x9E3779B97F4A7C15L + edges);
+        }
+    }
+
+    /**
+     * Canonical form of a cube and how to get there: conjugate by symmetry,
+     * after inverting the cube if inverted
+     */
+    private static final class Canonical {
+        final Key key;
+        final int symmetry;
+        final boolean inverted;
+
+        Canonical(RubiksCube cube){
+            long bestCorners = Long.MAX_VALUE, bestEdges = Long.MAX_VALUE;
+            int bestSymmetry = 0;
+            boolean bestInverted = false;
+            for(int inv = 0; inv < 2; inv++){
+                long corners = inv == 0 ? cube.cornerState() : Symmetry.invertCorners(cube.cornerState());
+                long edges = inv == 0 ? cube.edgeState() : Symmetry.invertEdges(cube.edgeState());
+                for(int s = 0; s < Symmetry.N_SYM; s++){
+                    long c = Symmetry.conjugateCorners(corners, s);
+                    if(c > bestCorners){ continue; }
+                    long e = Symmetry.conjugateEdges(edges, s);
+                    if(c < bestCorners || e < bestEdges){
+                        bestCorners = c;
+                        bestEdges = e;
+                        bestSymmetry = s;
+                        bestInverted = inv == 1;
+                    }
+                }
+            }
+            this.key = new Key(bestCorners, bestEdges);
+            this.symmetry = bestSymmetry;
+            this.inverted = bestInverted;
+        }
+    }
+
+    /**
+     * @param capacity maximum number of solutions kept
+     */
+    public SolutionCache(int capacity){
+        if(capacity < 1){
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, byte[]>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest){
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @return a solution for cube in standard notation, null if none is cached
+     */
+    public String get(RubiksCube cube){
+        Canonical canonical = new Canonical(cube);
+        byte[] stored;
+        synchronized (entries) {
+            stored = entries.get(canonical.key);
+        }
+        if(stored == null){
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+
+        // Undo the symmetry, then the inversion
+        int back = Symmetry.inverse(canonical.symmetry);
+        int[] moves = new int[stored.length];
+        for(int i = 0; i < moves.length; i++){
+            moves[i] = Symmetry.move(back, stored[i]);
+        }
+        if(canonical.inverted){
+            moves = invert(moves);
+        }
+        return RubiksCube.movesToString(moves, moves.length);
+    }
+
+    /**
+     * Remember solution for cube
+     * @throws IncorrectFormatException if solution is not in standard notation
+     */
+    public void put(RubiksCube cube, String solution){
+        Canonical canonical = new Canonical(cube);
+        int[] moves = RubiksCube.parseMoves(solution);
+        if(canonical.inverted){
+            moves = invert(moves);
+        }
+        byte[] stored = new byte[moves.length];
+        for(int i = 0; i < moves.length; i++){
+            stored[i] = (byte) Symmetry.move(canonical.symmetry, moves[i]);
+        }
+        synchronized (entries) {
+            entries.put(canonical.key, stored);
+        }
+    }
+
+    /**
+     * A sequence solving the inverse cube, reversed and inverted, solves the cube
+     */
+    private static int[] invert(int[] moves){
+        int[] result = new int[moves.length];
+        for(int i = 0; i < moves.length; i++){
+            result[i] = RubiksCube.inverse(moves[moves.length - 1 - i]);
+        }
+        return result;
+    }
+
+    public int size(){
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int capacity(){
+        return capacity;
+    }
+
+    public long getHits(){ return hits.sum(); }
+    public long getMisses(){ return misses.sum(); }
+
+    public double hitRate(){
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Write every entry to file, least recently used first, through a temporary file.
+     * One line per entry: canonical corners and edges in hex, then the moves
+     */
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try(BufferedWriter out = Files.newBufferedWriter(tmp)){
+            synchronized (entries) {
+                int[] moves = new int[0];
+                for(Map.Entry<Key, byte[]> entry: entries.entrySet()){
+                    byte[] stored = entry.getValue();
+                    if(moves.length < stored.length){
+                        moves = new int[stored.length];
+                    }
+                    for(int i = 0; i < stored.length; i++){
+                        moves[i] = stored[i];
+                    }
+                    out.write(Long.toHexString(entry.getKey().corners) + " " + Long.toHexString(entry.getKey().edges)
+                            + " " + RubiksCube.movesToString(moves, stored.length));
+                    out.newLine();
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Add the entries saved in file, a missing file is an empty cache
+     * @throws IncorrectFormatException if a line is not an entry written by save
+     */
+    public void load(Path file) throws IOException {
+        if(!Files.exists(file)){ return; }
+        try(BufferedReader in = Files.newBufferedReader(file)){
+            String line;
+            while((line = in.readLine()) != null){
+                String[] fields = line.split(" ", 3);
+                if(fields.length < 2){
+                    throw new IncorrectFormatException("Bad solution cache line in " + file + ": " + line);
+                }
+                try {
+                    Key key = new Key(Long.parseUnsignedLong(fields[0], 16), Long.parseUnsignedLong(fields[1], 16));
+                    int[] moves = RubiksCube.parseMoves(fields.length > 2 ? fields[2] : "");
+                    byte[] stored = new byte[moves.length];
+                    for(int i = 0; i < moves.length; i++){
+                        stored[i] = (byte) moves[i];
+                    }
+                    synchronized (entries) {
+                        entries.put(key, stored);
+                    }
+                }
+                catch (NumberFormatException e) {
+                    throw new IncorrectFormatException("Bad solution cache line in " + file + ": " + line);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString(){
+        return "SolutionCache[size=" + size() + ", capacity=" + capacity + ", hits=" + getHits()
+                + ", misses=" + getMisses() + String.format(", hitRate=%.3f]", hitRate());
+    }
+}
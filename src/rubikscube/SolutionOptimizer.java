@@ -0,0 +1,213 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Checks that a solution really solves its cube and shortens it with
+ * peephole rewrites that keep it solving the same cube:
+ * - turns of one face are merged, also across turns of the opposite face
+ *   (F B F' becomes B), and a run of one axis is written lower face first
+ * - any window of up to MAX_WINDOW moves that equals a shorter sequence is
+ *   replaced by it. The shorter sequences come from a table of every cube at
+ *   most TABLE_DEPTH moves from solved with one optimal sequence for it,
+ *   built by breadth first search when the class loads (about 47000 states)
+ * The two steps repeat until neither finds anything.
+ *
+ * Replaying a solution reuses one cube per thread, so verifying allocates
+ * nothing and costs one applyMove per move.
+ */
+public final class SolutionOptimizer {
+    static final int TABLE_DEPTH = 4;
+    static final int MAX_WINDOW = 12;
+
+    // Open addressing table, keyed by the packed state; a valid corner state is never 0
+    private static final int TABLE_BITS = 17;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+    private static final long[] TABLE_CORNERS = new long[1 << TABLE_BITS];
+    private static final long[] TABLE_EDGES = new long[1 << TABLE_BITS];
+    // Sequence length << 20 | moves, 5 bits each, first move lowest
+    private static final int[] TABLE_MOVES = new int[1 << TABLE_BITS];
+
+    private static final RubiksCube SOLVED = new RubiksCube();
+    private static final ThreadLocal<RubiksCube> SCRATCH = ThreadLocal.withInitial(RubiksCube::new);
+
+    static {
+        // Breadth first, so the first sequence stored for a state is a shortest one
+        insert(SOLVED.cornerState(), SOLVED.edgeState(), 0);
+        int[] frontier = {0}, frontierStates = {MoveAutomaton.START};
+        RubiksCube cube = new RubiksCube();
+        for(int depth = 0; depth < TABLE_DEPTH; depth++){
+            int[] next = new int[frontier.length * RubiksCube.N_MOVES];
+            int[] nextStates = new int[next.length];
+            int size = 0;
+            for(int i = 0; i < frontier.length; i++){
+                for(int move = 0; move < RubiksCube.N_MOVES; move++){
+                    int state = MoveAutomaton.HALF_TURNS.next(frontierStates[i], move);
+                    if(state < 0){ continue; }
+                    int packed = (frontier[i] & 0xFFFFF | move << 5 * depth) | (depth + 1) << 20;
+                    cube.copyFrom(SOLVED);
+                    for(int d = 0; d <= depth; d++){
+                        cube.applyMove(packed >>> 5 * d & 0x1F);
+                    }
+                    if(insert(cube.cornerState(), cube.edgeState(), packed)){
+                        next[size] = packed;
+                        nextStates[size++] = state;
+                    }
+                }
+            }
+            frontier = Arrays.copyOf(next, size);
+            frontierStates = Arrays.copyOf(nextStates, size);
+        }
+    }
+
+    private SolutionOptimizer() {}
+
+    private static int slot(long corners, long edges) {
+        long hash = (corners * 0x9E3779B97F4A7C15L + edges) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (hash >>> (64 - TABLE_BITS));
+    }
+
+    /**
+     * @return false if the state is already in the table
+     */
+    private static boolean insert(long corners, long edges, int moves) {
+        int i = slot(corners, edges);
+        while(TABLE_CORNERS[i] != 0){
+            if(TABLE_CORNERS[i] == corners && TABLE_EDGES[i] == edges){ return false; }
+            i = (i + 1) & TABLE_MASK;
+        }
+        TABLE_CORNERS[i] = corners;
+        TABLE_EDGES[i] = edges;
+        TABLE_MOVES[i] = moves;
+        return true;
+    }
+
+    /**
+     * @return the packed shortest sequence for the state, -1 if it is more than TABLE_DEPTH moves from solved
+     */
+    private static int lookup(long corners, long edges) {
+        int i = slot(corners, edges);
+        while(TABLE_CORNERS[i] != 0){
+            if(TABLE_CORNERS[i] == corners && TABLE_EDGES[i] == edges){ return TABLE_MOVES[i]; }
+            i = (i + 1) & TABLE_MASK;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the first length moves take cube to solved; cube is left unchanged
+     */
+    public static boolean solves(RubiksCube cube, int[] moves, int length) {
+        RubiksCube scratch = SCRATCH.get();
+        scratch.copyFrom(cube);
+        for(int i = 0; i < length; i++){
+            scratch.applyMove(moves[i]);
+        }
+        return scratch.isSolved();
+    }
+
+    /**
+     * @return true if solution, in the notation of RubiksCube.applyMoves, takes cube to solved
+     * @throws IncorrectFormatException if solution is not a move sequence
+     */
+    public static boolean solves(RubiksCube cube, String solution) {
+        int[] moves = RubiksCube.parseMoves(solution);
+        return solves(cube, moves, moves.length);
+    }
+
+    /**
+     * Verify solution and return it shortened
+     * @return the optimized solution, or null if solution does not solve cube
+     * @throws IncorrectFormatException if solution is not a move sequence
+     */
+    public static String check(RubiksCube cube, String solution) {
+        int[] moves = RubiksCube.parseMoves(solution);
+        if(!solves(cube, moves, moves.length)){ return null; }
+        int length = optimize(moves, moves.length);
+        // The rewrites keep the cube solved, a failure here is a bug in them
+        if(!solves(cube, moves, length)){
+            throw new IllegalStateException("Optimizing broke the solution " + solution);
+        }
+        return RubiksCube.movesToString(moves, length);
+    }
+
+    /**
+     * Shorten the first length moves in place; the result is the same cube turn
+     * @return the new length
+     */
+    public static int optimize(int[] moves, int length) {
+        length = mergeTurns(moves, length);
+        int shorter;
+        while((shorter = replaceWindow(moves, length)) < length){
+            length = mergeTurns(moves, shorter);
+        }
+        return length;
+    }
+
+    /**
+     * Merge turns of a face with the turns of it before, looking past one turn
+     * of the opposite face, drop full turns and order each axis lower face
+     * first, like MoveAutomaton
+     * @return the new length
+     */
+    static int mergeTurns(int[] moves, int length) {
+        int top = 0;
+        for(int i = 0; i < length; i++){
+            int move = moves[i];
+            int face = move / 3;
+            int target = -1;
+            if(top > 0 && moves[top - 1] / 3 == face){
+                target = top - 1;
+            } else if(top > 1 && moves[top - 1] / 6 == move / 6 && moves[top - 2] / 3 == face){
+                target = top - 2;
+            }
+
+            if(target < 0){
+                moves[top++] = move;
+                if(top > 1 && moves[top - 2] / 6 == move / 6 && moves[top - 2] > move){
+                    moves[top - 1] = moves[top - 2];
+                    moves[top - 2] = move;
+                }
+                continue;
+            }
+            int turns = (moves[target] % 3 + move % 3 + 2) % 4;
+            if(turns != 0){
+                moves[target] = face * 3 + turns - 1;
+            } else {
+                // Cancelled: close the gap, at most the opposite face's turn follows
+                if(target == top - 2){
+                    moves[target] = moves[top - 1];
+                }
+                top--;
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Replace the first window that has a shorter equivalent in the table
+     * @return the new length, length if no window was replaced
+     */
+    private static int replaceWindow(int[] moves, int length) {
+        RubiksCube window = SCRATCH.get();
+        for(int start = 0; start < length; start++){
+            window.copyFrom(SOLVED);
+            int end = Math.min(length, start + MAX_WINDOW);
+            for(int i = start; i < end; i++){
+                window.applyMove(moves[i]);
+                int span = i - start + 1;
+                if(span <= 1){ continue; }
+                int found = lookup(window.cornerState(), window.edgeState());
+                if(found < 0 || found >>> 20 >= span){ continue; }
+
+                int replacement = found >>> 20;
+                for(int k = 0; k < replacement; k++){
+                    moves[start + k] = found >>> 5 * k & 0x1F;
+                }
+                System.arraycopy(moves, i + 1, moves, start + replacement, length - i - 1);
+                return length - span + replacement;
+            }
+        }
+        return length;
+    }
+}
@@ -3,9 +3,40 @@ package rubikscube;
 import java.io.File;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 public class Solver {
+    // Solutions kept by the batch mode's solution cache
+    private static final int SOLUTION_CACHE_SIZE = 1 << 18;
+
 	public static void main(String[] args) {
+		if (args.length >= 1 && args[0].equals("--pdb")) {
+			patternDatabaseTool(args);
+			return;
+		}
+		if (args.length >= 2 && args[0].equals("--batch")) {
+			batchSolve(args);
+			return;
+		}
+		if (args.length >= 1 && args[0].equals("--cubes")) {
+			cubeFileTool(args);
+			return;
+		}
+		if (args.length >= 1 && args[0].equals("--scramble")) {
+			scrambleTool(args);
+			return;
+		}
+		if (args.length >= 1 && args[0].equals("--serve")) {
+			serve(args);
+			return;
+		}
+		if (args.length >= 3 && args[0].equals("--load")) {
+			loadTest(args);
+			return;
+		}
 		if (args.length < 1) {
 			System.out.println("File names are not specified");
 			System.out.println("usage: java " + MethodHandles.lookup().lookupClass().getName() + " input_file output_file");
@@ -21,12 +52,24 @@ public class Solver {
             // Debugging information
             System.out.println("Reading scrambled cube from: " + input);
 
-            // TODO: If cube is already solved, no need to continue
-
-            // Print output
-            System.out.println("//======Cubie Testing=====//");
-            testCubieMapping(cube);
+            // An already solved cube gets an empty solution
+            CubeSolver solver = new TwoPhaseSolver();
+            String solution = solver.solve(cube);
+            if (solution == null) {
+                System.out.println("No solution found in time");
+                return;
+            }
+            // Replay it before trusting it, and shorten it where a shorter sequence does the same
+            solution = SolutionOptimizer.check(cube, solution);
+            if (solution == null) {
+                System.err.println("Solver returned a sequence that does not solve the cube");
+                return;
+            }
+            System.out.println("Solution: " + solution);
 
+            if (args.length > 1) {
+                Files.write(Paths.get(args[1]), solution.getBytes());
+            }
         }
         // Error reading/writing file
         catch (IOException e){
@@ -38,51 +81,277 @@ public class Solver {
         }
 	}
 
-    public static void testCubieMapping(RubiksCube cube){
-        Corner[] corners;
-        Edge[] edges;
-
-        System.out.println("====== INITIAL SOLVED STATE (from file) ======");
-        System.out.println(cube.toString());
-        corners = cube.getCorners();
-        edges = cube.getEdges();
-
-        System.out.println();
-        System.out.println();
+    /**
+     * Run a resident SolverServer until the process is stopped:
+     *   --serve [port] [workers] [queue] [time limit ms]
+     */
+    private static void serve(String[] args) {
+        try {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            int queue = args.length > 3 ? Integer.parseInt(args[3]) : workers * 4;
+            long timeLimit = args.length > 4 ? Long.parseLong(args[4]) : 1000;
+            SolverServer server = new SolverServer(port, workers, queue, timeLimit, SOLUTION_CACHE_SIZE);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.stop();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            server.start();
+            System.out.println("Solving on http://localhost:" + server.getPort() + "/solve with " + workers
+                    + " workers, queue " + queue + ", time limit " + timeLimit + " ms");
+        }
+        catch (IOException e) {
+            System.err.println("Error starting server " + e.getMessage());
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("usage: java " + Solver.class.getName() + " --serve [port] [workers] [queue] [time limit ms]");
+        }
+    }
 
-        System.out.println("Init");
-        corners = cube.getCorners();
-        for(int i = 0; i < 8; i ++) {
-            System.out.println("Pos: " + i + ": " + corners[i]);
+    /**
+     * Load test a running server with the cubes of a directory or glob:
+     *   --load url dir|glob [clients] [seconds]
+     */
+    private static void loadTest(String[] args) {
+        try {
+            int clients = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+            int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+            new LoadGenerator(args[1], args[2]).run(clients, seconds);
+        }
+        catch (IOException e) {
+            System.err.println("Error reading input " + e.getMessage());
         }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("usage: java " + Solver.class.getName() + " --load url dir|glob [clients] [seconds]");
+        }
+    }
 
-        cube.applyMoves("F");
-        corners = cube.getCorners();
-        for(int i = 0; i < 8; i ++) {
-            System.out.println("Pos: " + i + ": " + corners[i]);
+    /**
+     * Solve many cubes in this JVM:
+     *   --batch dir|glob|-|file.cubes [workers] [time limit ms] [cache file]
+     * one tab separated result line per cube, see BatchSolver. With a cache
+     * file, solutions are looked up in and added to a SolutionCache that is
+     * loaded before and saved after the run
+     */
+    private static void batchSolve(String[] args) {
+        try {
+            int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            long timeLimit = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+            BatchSolver batch = new BatchSolver(workers, timeLimit, System.out);
+            SolutionCache cache = null;
+            if (args.length > 4) {
+                cache = new SolutionCache(SOLUTION_CACHE_SIZE);
+                cache.load(Paths.get(args[4]));
+                batch.setCache(cache);
+            }
+            int failures = batch.run(args[1]);
+            if (cache != null) {
+                cache.save(Paths.get(args[4]));
+                System.err.println(cache);
+            }
+            if (failures > 0) {
+                System.exit(1);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Error reading input " + e.getMessage());
         }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (IncorrectFormatException e) {
+            System.err.println("Incorrect format! " + e.getMessage());
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("usage: java " + Solver.class.getName()
+                    + " --batch dir|glob|-|file" + CubeFile.EXTENSION + " [workers] [time limit ms] [cache file]");
+        }
+    }
 
-        System.out.println();
-        cube.applyMoves("B");
-        corners = cube.getCorners();
-        for(int i = 0; i < 8; i ++) {
-            System.out.println("Pos: " + i + ": " + corners[i]);
+    /**
+     * Convert between net text files and binary cube files:
+     *   --cubes pack out.cubes dir|glob|-   one record per net file, in order
+     *   --cubes unpack in.cubes dir         one net file per record
+     */
+    private static void cubeFileTool(String[] args) {
+        if (args.length < 4) {
+            System.out.println("usage: java " + Solver.class.getName() + " --cubes pack out" + CubeFile.EXTENSION + " dir|glob|-");
+            System.out.println("       java " + Solver.class.getName() + " --cubes unpack in" + CubeFile.EXTENSION + " dir");
+            return;
         }
+        try {
+            switch (args[1]) {
+                case "pack": {
+                    try (CubeFile.Writer writer = new CubeFile.Writer(Paths.get(args[2]))) {
+                        BatchSolver.forEachFile(args[3], file -> writer.append(new RubiksCube(file.toString())));
+                        writer.commit();
+                        System.out.println("Packed " + writer.size() + " cubes into " + args[2]);
+                    }
+                    break;
+                }
+                case "unpack": {
+                    CubeFile cubes = CubeFile.open(Paths.get(args[2]));
+                    Path dir = Paths.get(args[3]);
+                    Files.createDirectories(dir);
+                    RubiksCube cube = new RubiksCube();
+                    for (long i = 0; i < cubes.size(); i++) {
+                        cubes.read(i, cube);
+                        String net = RubiksCube.netToString(CubieMapper.toNet(cube));
+                        Files.write(dir.resolve(String.format("cube%08d.txt", i)), net.getBytes());
+                    }
+                    System.out.println("Unpacked " + cubes.size() + " cubes into " + dir);
+                    break;
+                }
+                default:
+                    System.out.println("Unknown --cubes command: " + args[1]);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Error accessing cube file " + e.getMessage());
+            System.exit(1);
+        }
+        catch (IncorrectFormatException e) {
+            System.err.println("Incorrect format! " + e.getMessage());
+            System.exit(1);
+        }
+    }
 
-        System.out.println();
-        cube.applyMoves("B");
-        corners = cube.getCorners();
-        for(int i = 0; i < 8; i ++) {
-            System.out.println("Pos: " + i + ": " + corners[i]);
+    /**
+     * Generate scrambled cubes, see ScrambleGenerator:
+     *   --scramble random|depth count out.cubes|dir [seed] [threads]
+     * random gives uniformly random states, a depth that many random face
+     * turns. A .cubes file gets the cubes as records, anything else is a
+     * directory that gets one net file per cube
+     */
+    private static void scrambleTool(String[] args) {
+        if (args.length < 4) {
+            System.out.println("usage: java " + Solver.class.getName()
+                    + " --scramble random|depth count out" + CubeFile.EXTENSION + "|dir [seed] [threads]");
+            return;
         }
+        try {
+            long count = Long.parseLong(args[2]);
+            long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+            int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+            ScrambleGenerator generator = args[1].equals("random")
+                    ? ScrambleGenerator.randomStates(seed)
+                    : ScrambleGenerator.randomMoves(Integer.parseInt(args[1]), seed);
 
-        System.out.println();
-        cube.applyMoves("B");
-        corners = cube.getCorners();
-        for(int i = 0; i < 8; i ++) {
-            System.out.println("Pos: " + i + ": " + corners[i]);
+            long start = System.nanoTime();
+            if (args[3].endsWith(CubeFile.EXTENSION)) {
+                try (CubeFile.Writer writer = new CubeFile.Writer(Paths.get(args[3]))) {
+                    generator.generate(count, threads, writer::append);
+                    writer.commit();
+                }
+            } else {
+                Path dir = Paths.get(args[3]);
+                Files.createDirectories(dir);
+                long[] index = {0};
+                generator.generate(count, threads, cube -> {
+                    String net = RubiksCube.netToString(CubieMapper.toNet(cube));
+                    Files.write(dir.resolve(String.format("cube%08d.txt", index[0]++)), net.getBytes());
+                });
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Wrote %d cubes to %s in %.2f s, %.0f cubes/s%n", count, args[3], seconds, count / seconds);
+        }
+        catch (IOException e) {
+            System.err.println("Error writing cubes " + e.getMessage());
+            System.exit(1);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
         }
+        catch (IllegalArgumentException e) {
+            System.err.println("usage: java " + Solver.class.getName()
+                    + " --scramble random|depth count out" + CubeFile.EXTENSION + "|dir [seed] [threads]");
+            System.exit(1);
+        }
+    }
 
-        System.out.println("Solved: " + cube.isSolved());
+    /**
+     * Pattern database maintenance:
+     *   --pdb generate dir [TYPE...]   build tables (default: all) and write them into dir
+     *   --pdb verify file...           check each file's checksum
+     *   --pdb inspect file...          print the header and the distance histogram
+     */
+    private static void patternDatabaseTool(String[] args) {
+        if (args.length < 3) {
+            System.out.println("usage: java " + Solver.class.getName() + " --pdb generate dir [TYPE...]");
+            System.out.println("       java " + Solver.class.getName() + " --pdb verify|inspect file...");
+            return;
+        }
+        try {
+            switch (args[1]) {
+                case "generate": {
+                    Path dir = Paths.get(args[2]);
+                    Files.createDirectories(dir);
+                    PatternDatabase.Type[] types = PatternDatabase.Type.values();
+                    if (args.length > 3) {
+                        types = new PatternDatabase.Type[args.length - 3];
+                        for (int i = 3; i < args.length; i++) {
+                            types[i - 3] = PatternDatabase.Type.valueOf(args[i]);
+                        }
+                    }
+                    for (PatternDatabase.Type type : types) {
+                        long start = System.currentTimeMillis();
+                        PatternDatabase database = PatternDatabase.generate(type, true);
+                        Path file = dir.resolve(PatternDatabaseFile.fileName(type));
+                        PatternDatabaseFile.write(database, file);
+                        System.out.println("Wrote " + file + " in " + (System.currentTimeMillis() - start) + " ms");
+                    }
+                    break;
+                }
+                case "verify": {
+                    boolean allValid = true;
+                    for (int i = 2; i < args.length; i++) {
+                        boolean valid = PatternDatabaseFile.verify(Paths.get(args[i]));
+                        System.out.println(args[i] + ": " + (valid ? "OK" : "CHECKSUM MISMATCH"));
+                        allValid &= valid;
+                    }
+                    if (!allValid) {
+                        System.exit(1);
+                    }
+                    break;
+                }
+                case "inspect": {
+                    for (int i = 2; i < args.length; i++) {
+                        Path file = Paths.get(args[i]);
+                        System.out.println(file + ": " + PatternDatabaseFile.readHeader(file));
+                        PatternDatabase database = PatternDatabaseFile.load(file);
+                        long[] histogram = new long[16];
+                        for (int index = 0; index < database.getType().size(); index++) {
+                            histogram[PatternDatabase.get(database.entries(), index)]++;
+                        }
+                        for (int depth = 0; depth < histogram.length; depth++) {
+                            if (histogram[depth] > 0) {
+                                System.out.println("  depth " + depth + ": " + histogram[depth]);
+                            }
+                        }
+                    }
+                    break;
+                }
+                default:
+                    System.out.println("Unknown --pdb command: " + args[1]);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Error accessing pattern database " + e.getMessage());
+        }
+        catch (IncorrectFormatException e) {
+            System.err.println("Incorrect format! " + e.getMessage());
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Unknown table type, expected one of "
+                    + Arrays.toString(PatternDatabase.Type.values()));
+        }
     }
 }
@@ -0,0 +1,264 @@
+package rubikscube;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resident solve service on a local HTTP port, so callers pay for process
+ * start, table building and JIT warm up once instead of per cube:
+ *   POST /solve  a net as in the testcase files (text/plain), or one
+ *                CubeFile record, 16 bytes (application/octet-stream)
+ *                200 with the solution, 400 for a bad cube, 503 when over
+ *                capacity, 504 when no solution was found in time, 500
+ *                when solving failed
+ *                (solutions are verified and shortened, see SolutionOptimizer)
+ *   GET  /stats  counters as JSON
+ *
+ * Two handler threads only read and parse requests; each accepted cube is
+ * handed, with its exchange, to a fixed pool of solver workers that write the
+ * response, so no thread waits on a request that is queued. At most
+ * workers + queue cubes are accepted at a time, later ones are turned away
+ * with 503 at once instead of waiting behind the queue. A request's time
+ * limit starts when it is accepted, so time spent queued counts against it.
+ *
+ * The move, pruning and symmetry tables are static and read-only, so every
+ * worker shares them; each worker has its own TwoPhaseSolver, and all
+ * share one SolutionCache.
+ */
+public class SolverServer {
+    private static final int HANDLER_THREADS = 2;
+    // Largest request body read, a net is about 120 bytes
+    private static final int MAX_BODY = 4096;
+    private static final String BINARY_TYPE = "application/octet-stream";
+
+    private final HttpServer http;
+    private final ExecutorService handlers;
+    private final ExecutorService workers;
+    private final Semaphore capacity;
+    private final long timeLimit;
+    private final ThreadLocal<TwoPhaseSolver> solvers;
+    private final SolutionCache cache;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder badRequests = new LongAdder();
+    private final LongAdder solveNanos = new LongAdder();
+
+    /**
+     * @param port local port to listen on, 0 for any free one
+     * @param workers threads solving in parallel, about the number of cores
+     * @param queue accepted cubes that may wait for a worker
+     * @param timeLimit milliseconds each cube may take from being accepted
+     * @param cacheSize solutions kept in the shared SolutionCache
+     */
+    public SolverServer(int port, int workers, int queue, long timeLimit, int cacheSize) throws IOException {
+        if(workers < 1 || queue < 0){
+            throw new IllegalArgumentException("Need at least one worker and a queue of zero or more");
+        }
+        this.timeLimit = timeLimit;
+        this.capacity = new Semaphore(workers + queue);
+        this.solvers = ThreadLocal.withInitial(() -> new TwoPhaseSolver(timeLimit, 0));
+        this.cache = new SolutionCache(cacheSize);
+        this.workers = Executors.newFixedThreadPool(workers);
+        this.handlers = Executors.newFixedThreadPool(HANDLER_THREADS);
+
+        // Build the static tables now, not within the first request's time limit
+        RubiksCube warmUp = new RubiksCube();
+        warmUp.applyMoves("R U F' L2 D B'");
+        new TwoPhaseSolver(timeLimit, 0).solve(warmUp);
+        Symmetry.inverse(0);
+
+        this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.setExecutor(handlers);
+        http.createContext("/solve", this::handleSolve);
+        http.createContext("/stats", this::handleStats);
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Stop accepting, let accepted cubes finish and free the threads
+     */
+    public void stop() throws InterruptedException {
+        http.stop(0);
+        workers.shutdown();
+        workers.awaitTermination(timeLimit + 1000, TimeUnit.MILLISECONDS);
+        handlers.shutdown();
+    }
+
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        if(!exchange.getRequestMethod().equals("POST")){
+            respond(exchange, 405, "Use POST\n");
+            return;
+        }
+        RubiksCube cube;
+        try {
+            cube = readCube(exchange);
+        }
+        catch (IncorrectFormatException e) {
+            badRequests.increment();
+            respond(exchange, 400, e.getMessage() + "\n");
+            return;
+        }
+
+        if(!capacity.tryAcquire()){
+            rejected.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, "Over capacity\n");
+            return;
+        }
+        accepted.increment();
+        Deadline deadline = Deadline.after(timeLimit);
+        try {
+            workers.execute(() -> {
+                try {
+                    solve(exchange, cube, deadline);
+                }
+                finally {
+                    capacity.release();
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            // stop() has shut the workers down while this request was read
+            capacity.release();
+            accepted.decrement();
+            rejected.increment();
+            respond(exchange, 503, "Shutting down\n");
+        }
+    }
+
+    private void solve(HttpExchange exchange, RubiksCube cube, Deadline deadline) {
+        long start = System.nanoTime();
+        int status;
+        String body;
+        try {
+            String solution = cache.get(cube);
+            if(solution == null){
+                solution = solvers.get().solve(cube, deadline);
+                if(solution != null){
+                    cache.put(cube, solution);
+                }
+            }
+            String checked = solution == null ? null : SolutionOptimizer.check(cube, solution);
+            if(solution == null){
+                timedOut.increment();
+                status = 504;
+                body = "No solution in time\n";
+            } else if(checked == null){
+                errors.increment();
+                status = 500;
+                body = "Solution does not solve the cube\n";
+            } else {
+                solved.increment();
+                status = 200;
+                body = checked + "\n";
+            }
+        }
+        catch (RuntimeException e) {
+            // A bug in solving must still answer the client, not leave it waiting
+            errors.increment();
+            status = 500;
+            body = "Internal error: " + e + "\n";
+        }
+        solveNanos.add(System.nanoTime() - start);
+        try {
+            respond(exchange, status, body);
+        }
+        catch (IOException e) {
+            // The client went away, nothing left to tell it
+            exchange.close();
+        }
+    }
+
+    /**
+     * Parse the body as a net, or as a packed record when sent as binary
+     * @throws IncorrectFormatException if it is neither, or not a solvable cube
+     */
+    private static RubiksCube readCube(HttpExchange exchange) throws IOException {
+        byte[] body = readBody(exchange.getRequestBody());
+        RubiksCube cube = new RubiksCube();
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if(type != null && type.startsWith(BINARY_TYPE)){
+            if(body.length != CubeFile.RECORD_SIZE){
+                throw new IncorrectFormatException("Expected a " + CubeFile.RECORD_SIZE + " byte cube record");
+            }
+            ByteBuffer record = ByteBuffer.wrap(body);
+            long corners = record.getLong(), edges = record.getLong();
+            CubieMapper.validate(corners, edges);
+            cube.setState(corners, edges);
+            return cube;
+        }
+        String text = new String(body, StandardCharsets.UTF_8);
+        CubieMapper.parse(RubiksCube.readNet(new BufferedReader(new StringReader(text)), "request body"), cube);
+        return cube;
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        int n;
+        while((n = in.read(buffer)) > 0){
+            body.write(buffer, 0, n);
+            if(body.size() > MAX_BODY){
+                throw new IncorrectFormatException("Request body over " + MAX_BODY + " bytes");
+            }
+        }
+        return body.toByteArray();
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        long answered = solved.sum() + timedOut.sum() + errors.sum();
+        double meanMillis = answered == 0 ? 0 : solveNanos.sum() / 1e6 / answered;
+        String json = "{\"accepted\":" + accepted.sum()
+                + ",\"rejected\":" + rejected.sum()
+                + ",\"solved\":" + solved.sum()
+                + ",\"timedOut\":" + timedOut.sum()
+                + ",\"errors\":" + errors.sum()
+                + ",\"badRequests\":" + badRequests.sum()
+                + ",\"inFlight\":" + (accepted.sum() - answered)
+                + String.format(Locale.ROOT, ",\"meanSolveMillis\":%.3f", meanMillis)
+                + ",\"cacheSize\":" + cache.size()
+                + String.format(Locale.ROOT, ",\"cacheHitRate\":%.3f}", cache.hitRate());
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        respond(exchange, 200, json + "\n");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if(!exchange.getResponseHeaders().containsKey("Content-Type")){
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try(OutputStream out = exchange.getResponseBody()){
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Symmetry-reduced corner coordinate for pattern databases.
+ *
+ * The 16 symmetries that keep the U-D axis (Symmetry 0 to N_SYM_UD - 1) map
+ * the move set onto itself, so conjugate states are equally far from solved.
+ * The 8! corner permutations fall into N_CORNER_CLASSES classes of conjugates;
+ * each class is stored once, as the representative permutation, and a state
+ * is looked up by conjugating it onto its class representative. Corner twist
+ * is conjugated along with the permutation. When the representative is its
+ * own conjugate under some symmetries, twists that those symmetries swap are
+ * the same state and share one index.
+ *
+ * The reduced index is about 16 times smaller than cornerPerm * N_TWIST + twist
+ * and gives exactly the same distances.
+ */
+public class SymCoordinates {
+    public static final int N_SYM = Symmetry.N_SYM_UD;
+    public static final int N_CORNER_CLASSES = 2768;
+    // Number of distinct (class, twist) states, checked when the tables are built
+    public static final int N_CORNER_INDEX = 5_522_520;
+
+    // Class of each corner permutation, and a symmetry that conjugates it onto the representative
+    private static final char[] CORNER_CLASS = new char[Coordinates.N_CORNER_PERM];
+    private static final byte[] CORNER_CLASS_SYM = new byte[Coordinates.N_CORNER_PERM];
+    // Corner permutation of each class representative
+    private static final int[] CORNER_REP = new int[N_CORNER_CLASSES];
+    // First index of each class, the last entry is N_CORNER_INDEX
+    private static final int[] CLASS_OFFSET = new int[N_CORNER_CLASSES + 1];
+    // For classes whose representative is its own conjugate: the rank of each
+    // twist among the distinct twists of the class, and back. null otherwise
+    private static final char[][] TWIST_RANK = new char[N_CORNER_CLASSES][];
+    private static final char[][] TWIST_UNRANK = new char[N_CORNER_CLASSES][];
+    // TWIST_CONJ[twist * N_SYM + s] is the twist of the conjugate by s
+    private static final char[] TWIST_CONJ = new char[Coordinates.N_TWIST * N_SYM];
+
+    static {
+        int[] cp = new int[8], co = new int[8];
+        RubiksCube cube = new RubiksCube(), conjugate = new RubiksCube();
+
+        for(int twist = 0; twist < Coordinates.N_TWIST; twist++){
+            Coordinates.identity(cp);
+            Coordinates.setTwist(co, twist);
+            cube.setCorners(cp, co);
+            for(int s = 0; s < N_SYM; s++){
+                Symmetry.conjugate(cube, s, conjugate);
+                TWIST_CONJ[twist * N_SYM + s] = (char) Coordinates.twist(conjugate);
+            }
+        }
+
+        // The first permutation of each class met in rank order is its representative
+        int classes = 0;
+        Arrays.fill(CORNER_CLASS, (char) 0xFFFF);
+        Arrays.fill(co, 0);
+        for(int perm = 0; perm < Coordinates.N_CORNER_PERM; perm++){
+            if(CORNER_CLASS[perm] != 0xFFFF){ continue; }
+            if(classes == N_CORNER_CLASSES){
+                throw new IllegalStateException("More corner classes than " + N_CORNER_CLASSES);
+            }
+            CORNER_REP[classes] = perm;
+            Coordinates.setCornerPerm(cp, perm);
+            cube.setCorners(cp, co);
+            int stabilizer = 0;
+            for(int s = 0; s < N_SYM; s++){
+                Symmetry.conjugate(cube, s, conjugate);
+                int other = Coordinates.cornerPerm(conjugate);
+                if(other == perm){
+                    stabilizer |= 1 << s;
+                }
+                if(CORNER_CLASS[other] == 0xFFFF){
+                    CORNER_CLASS[other] = (char) classes;
+                    // other is the representative conjugated by s, so s's inverse takes it back
+                    CORNER_CLASS_SYM[other] = (byte) Symmetry.inverse(s);
+                }
+            }
+            int twists = Coordinates.N_TWIST;
+            if(stabilizer != 1){
+                twists = rankTwists(classes, stabilizer);
+            }
+            CLASS_OFFSET[classes + 1] = CLASS_OFFSET[classes] + twists;
+            classes++;
+        }
+        if(classes != N_CORNER_CLASSES){
+            throw new IllegalStateException("Expected " + N_CORNER_CLASSES + " corner classes, found " + classes);
+        }
+        if(CLASS_OFFSET[classes] != N_CORNER_INDEX){
+            throw new IllegalStateException("Expected " + N_CORNER_INDEX + " corner states, found " + CLASS_OFFSET[classes]);
+        }
+    }
+
+    /**
+     * Number the twists of a class whose representative is kept by the
+     * symmetries in stabilizer, giving twists those symmetries swap one rank
+     * @return the number of ranks
+     */
+    private static int rankTwists(int cornerClass, int stabilizer){
+        char[] rank = new char[Coordinates.N_TWIST];
+        char[] unrank = new char[Coordinates.N_TWIST];
+        Arrays.fill(rank, (char) 0xFFFF);
+        int ranks = 0;
+        for(int twist = 0; twist < Coordinates.N_TWIST; twist++){
+            if(rank[twist] != 0xFFFF){ continue; }
+            for(int s = 0; s < N_SYM; s++){
+                if((stabilizer & 1 << s) != 0){
+                    rank[TWIST_CONJ[twist * N_SYM + s]] = (char) ranks;
+                }
+            }
+            unrank[ranks++] = (char) twist;
+        }
+        TWIST_RANK[cornerClass] = rank;
+        TWIST_UNRANK[cornerClass] = Arrays.copyOf(unrank, ranks);
+        return ranks;
+    }
+
+    /**
+     * Reduced corner index of a corner permutation and twist
+     */
+    public static int cornerIndex(int cornerPerm, int twist){
+        int cornerClass = CORNER_CLASS[cornerPerm];
+        int conjugated = TWIST_CONJ[twist * N_SYM + CORNER_CLASS_SYM[cornerPerm]];
+        char[] rank = TWIST_RANK[cornerClass];
+        return CLASS_OFFSET[cornerClass] + (rank == null ? conjugated : rank[conjugated]);
+    }
+
+    public static int cornerIndex(RubiksCube cube){
+        return cornerIndex(Coordinates.cornerPerm(cube), Coordinates.twist(cube));
+    }
+
+    /**
+     * Corner permutation of the representative of a class
+     */
+    public static int cornerRepresentative(int cornerClass){
+        return CORNER_REP[cornerClass];
+    }
+
+    /**
+     * Class of a reduced corner index
+     */
+    public static int indexClass(int index){
+        int low = 0, high = N_CORNER_CLASSES - 1;
+        while(low < high){
+            int mid = (low + high + 1) >>> 1;
+            if(CLASS_OFFSET[mid] <= index){
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Twist of the representative state of a reduced corner index
+     */
+    public static int indexTwist(int index){
+        int cornerClass = indexClass(index);
+        int twist = index - CLASS_OFFSET[cornerClass];
+        char[] unrank = TWIST_UNRANK[cornerClass];
+        return unrank == null ? twist : unrank[twist];
+    }
+
+    public static int cornerClass(int cornerPerm){
+        return CORNER_CLASS[cornerPerm];
+    }
+
+    /**
+     * @return a symmetry that conjugates cornerPerm onto its class representative
+     */
+    public static int cornerSymmetry(int cornerPerm){
+        return CORNER_CLASS_SYM[cornerPerm];
+    }
+}
@@ -0,0 +1,256 @@
+package rubikscube;
+
+/**
+ * The 48 symmetries of the cube: rotations of the whole cube, with or without
+ * a reflection.
+ *
+ * Conjugating a state by a symmetry turns the picture of the cube (and
+ * recolors it so the centers are back in place), which gives a state that is
+ * exactly as far from solved. A move sequence solves the state if and only if
+ * the same sequence, turned by the symmetry, solves the conjugate; reflections
+ * also swap clockwise and counter-clockwise.
+ *
+ * Symmetries 0 to N_SYM_UD - 1 keep the U-D axis in place, 0 is the identity.
+ * All tables are derived at class load from the positions of the facelets in
+ * space, on the packed cubie lanes of RubiksCube.
+ */
+public class Symmetry {
+    public static final int N_SYM = 48;
+    public static final int N_SYM_UD = 16;
+
+    private static final int N_MOVES = RubiksCube.N_MOVES;
+    private static final int NET_SIZE = CubieMapper.NET_ROWS * CubieMapper.NET_COLS;
+
+    // Outward normal of each face, in RubiksCube.FACES order; x points right, y up, z to the front
+    private static final int[][] FACE_NORMAL = {
+            {0, 0, 1}, {0, 0, -1}, {1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}
+    };
+
+    // MATRIX[s] maps a vector v to (sign[i] * v[axis[i]])_i, stored as {axis0, axis1, axis2, sign0, sign1, sign2}
+    private static final int[][] MATRIX = new int[N_SYM][];
+    private static final boolean[] MIRROR = new boolean[N_SYM];
+    private static final int[] INVERSE = new int[N_SYM];
+
+    // MOVE[s][m] is move m turned by symmetry s
+    private static final int[][] MOVE = new int[N_SYM][N_MOVES];
+
+    // CORNER_MAP[s][pos << 5 | lane] = newPos << 5 | newLane, same for edges
+    private static final int[][] CORNER_MAP = new int[N_SYM][8 << 5];
+    private static final int[][] EDGE_MAP = new int[N_SYM][12 << 5];
+
+    static {
+        // Axis permutations that leave y (index 1) alone come first, so the U-D symmetries get the low indices
+        int[][] axes = {{0, 1, 2}, {2, 1, 0}, {1, 0, 2}, {0, 2, 1}, {1, 2, 0}, {2, 0, 1}};
+        int s = 0;
+        for(int[] axis: axes){
+            for(int signs = 0; signs < 8; signs++){
+                int[] matrix = {axis[0], axis[1], axis[2],
+                        (signs & 1) == 0 ? 1 : -1, (signs & 2) == 0 ? 1 : -1, (signs & 4) == 0 ? 1 : -1};
+                boolean oddPerm = (axis[0] > axis[1]) ^ (axis[0] > axis[2]) ^ (axis[1] > axis[2]);
+                MIRROR[s] = oddPerm ^ (Integer.bitCount(signs) % 2 == 1);
+                MATRIX[s++] = matrix;
+            }
+        }
+
+        // Every net facelet as a cubie position and a normal, and back
+        int[][] cubie = new int[NET_SIZE][];
+        int[] normal = new int[NET_SIZE];
+        for(int i = 0; i < NET_SIZE; i++){
+            normal[i] = -1;
+            int row = i / CubieMapper.NET_COLS, col = i % CubieMapper.NET_COLS;
+            if(row < 3 && col >= 3 && col < 6){
+                normal[i] = RubiksCube.UP;
+                cubie[i] = new int[]{col - 4, 1, row - 1};
+            } else if(row >= 6 && col >= 3 && col < 6){
+                normal[i] = RubiksCube.DOWN;
+                cubie[i] = new int[]{col - 4, -1, 7 - row};
+            } else if(row >= 3 && row < 6){
+                int y = 4 - row;
+                if(col < 3){
+                    normal[i] = RubiksCube.LEFT;
+                    cubie[i] = new int[]{-1, y, col - 1};
+                } else if(col < 6){
+                    normal[i] = RubiksCube.FRONT;
+                    cubie[i] = new int[]{col - 4, y, 1};
+                } else if(col < 9){
+                    normal[i] = RubiksCube.RIGHT;
+                    cubie[i] = new int[]{1, y, 7 - col};
+                } else {
+                    normal[i] = RubiksCube.BACK;
+                    cubie[i] = new int[]{10 - col, y, -1};
+                }
+            }
+        }
+
+        // Which corner or edge position a facelet belongs to
+        int[] cornerAt = new int[NET_SIZE], edgeAt = new int[NET_SIZE];
+        for(int pos = 0; pos < 8; pos++){
+            for(int facelet: CubieMapper.CORNER_FACELETS[pos]){ cornerAt[facelet] = pos; }
+        }
+        for(int pos = 0; pos < 12; pos++){
+            for(int facelet: CubieMapper.EDGE_FACELETS[pos]){ edgeAt[facelet] = pos; }
+        }
+
+        for(s = 0; s < N_SYM; s++){
+            int[] matrix = MATRIX[s];
+
+            // Facelet a lands on facelet image[a]; a face's colors become those of its image face
+            int[] faceImage = new int[6];
+            for(int f = 0; f < 6; f++){
+                faceImage[f] = faceOf(apply(matrix, FACE_NORMAL[f]));
+            }
+            int[] image = new int[NET_SIZE];
+            for(int a = 0; a < NET_SIZE; a++){
+                if(normal[a] < 0){ continue; }
+                int[] v = apply(matrix, cubie[a]);
+                int n = faceImage[normal[a]];
+                for(int b = 0; b < NET_SIZE; b++){
+                    if(normal[b] == n && cubie[b][0] == v[0] && cubie[b][1] == v[1] && cubie[b][2] == v[2]){
+                        image[a] = b;
+                    }
+                }
+            }
+            char[] recolor = new char[128];
+            for(int f = 0; f < 6; f++){
+                recolor[CubieMapper.CENTER_COLORS[f]] = CubieMapper.CENTER_COLORS[faceImage[f]];
+            }
+
+            for(int m = 0; m < N_MOVES; m++){
+                int turns = m % 3 + 1;
+                MOVE[s][m] = faceImage[m / 3] * 3 + (MIRROR[s] ? 4 - turns : turns) - 1;
+            }
+
+            // Draw each possible cubie, move its facelets and read it back
+            char[] net = new char[NET_SIZE], turned = new char[NET_SIZE];
+            for(int pos = 0; pos < 8; pos++){
+                int target = cornerAt[image[CubieMapper.CORNER_FACELETS[pos][0]]];
+                for(int piece = 0; piece < 8; piece++){
+                    for(int ori = 0; ori < 3; ori++){
+                        CubieMapper.drawCorner(net, pos, piece, ori);
+                        for(int a: CubieMapper.CORNER_FACELETS[pos]){
+                            turned[image[a]] = recolor[net[a]];
+                        }
+                        int lane = CubieMapper.readCorner(turned, target);
+                        CORNER_MAP[s][pos << 5 | piece | ori << 3] = target << 5 | lane;
+                    }
+                }
+            }
+            for(int pos = 0; pos < 12; pos++){
+                int target = edgeAt[image[CubieMapper.EDGE_FACELETS[pos][0]]];
+                for(int piece = 0; piece < 12; piece++){
+                    for(int ori = 0; ori < 2; ori++){
+                        CubieMapper.drawEdge(net, pos, piece, ori);
+                        for(int a: CubieMapper.EDGE_FACELETS[pos]){
+                            turned[image[a]] = recolor[net[a]];
+                        }
+                        int lane = CubieMapper.readEdge(turned, target);
+                        EDGE_MAP[s][pos << 5 | piece | ori << 4] = target << 5 | lane;
+                    }
+                }
+            }
+        }
+
+        // The inverse takes every face back to where it started
+        for(s = 0; s < N_SYM; s++){
+            for(int t = 0; t < N_SYM; t++){
+                boolean inverse = true;
+                for(int f = 0; f < 6 && inverse; f++){
+                    int[] v = apply(MATRIX[t], apply(MATRIX[s], FACE_NORMAL[f]));
+                    inverse = faceOf(v) == f;
+                }
+                if(inverse){ INVERSE[s] = t; }
+            }
+        }
+    }
+
+    private static int[] apply(int[] matrix, int[] v){
+        return new int[]{matrix[3] * v[matrix[0]], matrix[4] * v[matrix[1]], matrix[5] * v[matrix[2]]};
+    }
+
+    private static int faceOf(int[] n){
+        for(int f = 0; f < 6; f++){
+            if(FACE_NORMAL[f][0] == n[0] && FACE_NORMAL[f][1] == n[1] && FACE_NORMAL[f][2] == n[2]){ return f; }
+        }
+        throw new IllegalStateException("Not a face normal");
+    }
+
+    /**
+     * @return true if s includes a reflection
+     */
+    public static boolean isMirror(int s){
+        return MIRROR[s];
+    }
+
+    /**
+     * @return the symmetry that undoes s
+     */
+    public static int inverse(int s){
+        return INVERSE[s];
+    }
+
+    /**
+     * @return move turned by symmetry s
+     */
+    public static int move(int s, int move){
+        return MOVE[s][move];
+    }
+
+    /**
+     * Packed corner lanes of the conjugate of a state by s, see RubiksCube
+     */
+    public static long conjugateCorners(long corners, int s){
+        int[] map = CORNER_MAP[s];
+        long result = 0;
+        for(int pos = 0; pos < 8; pos++){
+            int m = map[pos << 5 | (int) (corners >>> (pos * 5)) & 0x1F];
+            result |= (long) (m & 0x1F) << ((m >>> 5) * 5);
+        }
+        return result;
+    }
+
+    /**
+     * Packed edge lanes of the conjugate of a state by s, see RubiksCube
+     */
+    public static long conjugateEdges(long edges, int s){
+        int[] map = EDGE_MAP[s];
+        long result = 0;
+        for(int pos = 0; pos < 12; pos++){
+            int m = map[pos << 5 | (int) (edges >>> (pos * 5)) & 0x1F];
+            result |= (long) (m & 0x1F) << ((m >>> 5) * 5);
+        }
+        return result;
+    }
+
+    /**
+     * Packed corner lanes of the inverse state: the one that the reversed
+     * and inverted sequence of moves leads to
+     */
+    public static long invertCorners(long corners){
+        long result = 0;
+        for(int pos = 0; pos < 8; pos++){
+            int lane = (int) (corners >>> (pos * 5)) & 0x1F;
+            int ori = lane >>> 3;
+            result |= (long) (pos | ((3 - ori) % 3) << 3) << ((lane & 7) * 5);
+        }
+        return result;
+    }
+
+    /**
+     * Packed edge lanes of the inverse state
+     */
+    public static long invertEdges(long edges){
+        long result = 0;
+        for(int pos = 0; pos < 12; pos++){
+            int lane = (int) (edges >>> (pos * 5)) & 0x1F;
+            result |= (long) (pos | (lane & 0x10)) << ((lane & 15) * 5);
+        }
+        return result;
+    }
+
+    /**
+     * Conjugate of cube by s, written into into
+     */
+    public static void conjugate(RubiksCube cube, int s, RubiksCube into){
+        into.setState(conjugateCorners(cube.cornerState(), s), conjugateEdges(cube.edgeState(), s));
+    }
+}
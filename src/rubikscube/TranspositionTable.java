@@ -0,0 +1,154 @@
+package rubikscube;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size, lock-free cache of learned lower bounds for IDA*.
+ *
+ * When the subtree below a state has been searched with some budget and no
+ * solution was found, the smallest f that overflowed the budget, minus g, is a
+ * lower bound on the state's distance to solved that is at least as good as
+ * the heuristic. Storing it lets later visits of the same state (reached by a
+ * different move order, or in the next iteration) cut off immediately.
+ *
+ * Each slot is a single long: the upper 56 bits of the 64-bit Zobrist key and
+ * an 8 bit bound, so a reader never sees half of an update and any number of
+ * search workers can share one table. Collisions on the 56 key bits are
+ * astronomically unlikely. Slots come in pairs; a store replaces the same key,
+ * an empty slot, or else the pair member with the smaller bound (the one that
+ * cost less search to learn).
+ */
+public class TranspositionTable {
+    private static final long KEY_MASK = 0xFFFFFFFFFFFFFF00L;
+    private static final int BOUND_MASK = 0xFF;
+
+    // Zobrist keys per position and lane value, and per move automaton state
+    private static final long[][] CORNER_KEYS = new long[8][32];
+    private static final long[][] EDGE_KEYS = new long[12][32];
+    private static final long[] STATE_KEYS = new long[64];
+
+    static {
+        // Fixed seed, keys are identical in every run
+        SplittableRandom random = new SplittableRandom(0x5EEDC0BEL);
+        for(long[] keys: CORNER_KEYS){
+            for(int i = 0; i < keys.length; i++){ keys[i] = random.nextLong(); }
+        }
+        for(long[] keys: EDGE_KEYS){
+            for(int i = 0; i < keys.length; i++){ keys[i] = random.nextLong(); }
+        }
+        for(int i = 0; i < STATE_KEYS.length; i++){ STATE_KEYS[i] = random.nextLong(); }
+    }
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * @param maxBytes memory cap, the table uses the largest power of two slots that fits
+     */
+    public TranspositionTable(long maxBytes){
+        long slotCount = Long.highestOneBit(Math.max(2, maxBytes / Long.BYTES));
+        if(slotCount > (1 << 30)){
+            slotCount = 1 << 30;
+        }
+        this.slots = new AtomicLongArray((int) slotCount);
+        this.mask = (int) slotCount - 2;
+    }
+
+    /**
+     * 64-bit Zobrist key of cube's cubies and the move automaton state it was
+     * reached in. The state is part of the key because the automaton restricts
+     * which moves are searched below the cube, so bounds only carry over
+     * between visits with the same state.
+     */
+    public static long key(RubiksCube cube, int automatonState){
+        long corners = cube.cornerState(), edges = cube.edgeState();
+        long key = STATE_KEYS[automatonState];
+        for(int i = 0; i < 8; i++){
+            key ^= CORNER_KEYS[i][(int) (corners >>> (i * 5)) & 0x1F];
+        }
+        for(int i = 0; i < 12; i++){
+            key ^= EDGE_KEYS[i][(int) (edges >>> (i * 5)) & 0x1F];
+        }
+        return key;
+    }
+
+    /**
+     * @return the stored lower bound for key, 0 if there is none
+     */
+    public int probe(long key){
+        int index = (int) key & mask;
+        long tag = key & KEY_MASK;
+        for(int i = index; i <= index + 1; i++){
+            long slot = slots.get(i);
+            if((slot & KEY_MASK) == tag && slot != 0){
+                hits.increment();
+                return (int) slot & BOUND_MASK;
+            }
+        }
+        misses.increment();
+        return 0;
+    }
+
+    /**
+     * Remember that the state behind key is at least bound moves from solved
+     */
+    public void store(long key, int bound){
+        if(bound <= 0){ return; }
+        bound = Math.min(bound, BOUND_MASK);
+        int index = (int) key & mask;
+        long tag = key & KEY_MASK;
+        long entry = tag | bound;
+
+        long first = slots.get(index), second = slots.get(index + 1);
+        int target;
+        if((first & KEY_MASK) == tag || first == 0){
+            target = index;
+        } else if((second & KEY_MASK) == tag || second == 0){
+            target = index + 1;
+        } else {
+            target = (first & BOUND_MASK) <= (second & BOUND_MASK) ? index : index + 1;
+        }
+        long old = slots.get(target);
+        // Never lower a bound we already know for the same state
+        if((old & KEY_MASK) == tag && (old & BOUND_MASK) >= bound){ return; }
+        slots.set(target, entry);
+        stores.increment();
+    }
+
+    public long getHits(){ return hits.sum(); }
+    public long getMisses(){ return misses.sum(); }
+    public long getStores(){ return stores.sum(); }
+
+    public double hitRate(){
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int capacity(){
+        return slots.length();
+    }
+
+    /**
+     * Empty the table and reset the counters
+     */
+    public void clear(){
+        for(int i = 0; i < slots.length(); i++){
+            slots.set(i, 0);
+        }
+        hits.reset();
+        misses.reset();
+        stores.reset();
+    }
+
+    @Override
+    public String toString(){
+        return "TranspositionTable[slots=" + capacity() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", stores=" + getStores() + String.format(", hitRate=%.3f]", hitRate());
+    }
+}
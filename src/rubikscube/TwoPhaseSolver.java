@@ -0,0 +1,254 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Kociemba's two-phase algorithm.
+ *
+ * Phase 1 finds moves that bring the cube into the subgroup
+ * G1 = <U, D, R2, L2, F2, B2>: every corner and edge oriented and the 4 slice
+ * edges back in the middle slice (twist = flip = slice = 0).
+ * Phase 2 then solves the cube using only G1 moves, tracking the corner,
+ * U/D edge and slice edge permutations.
+ *
+ * Phase 1 solutions are tried shortest first and every later solution must
+ * beat the best one so far, so the result keeps getting shorter until the
+ * time limit, the target length, or optimality of phase 1 stops the search.
+ */
+public class TwoPhaseSolver implements CubeSolver {
+    // Every cube is solvable in 12 phase 1 moves followed by 18 phase 2 moves
+    private static final int MAX_LENGTH = 30;
+    private static final int MAX_PHASE2 = 18;
+
+    // How many nodes to expand between clock checks
+    private static final int CLOCK_INTERVAL = 1024;
+    // Time limit of quick(), enough for a near optimal answer to most cubes
+    static final long QUICK_TIME_LIMIT = 100;
+
+    // Distance to G1 ignoring flip, and ignoring twist: [twist * N_SLICE + slice], [flip * N_SLICE + slice]
+    private static final byte[] TWIST_SLICE_PRUNE;
+    private static final byte[] FLIP_SLICE_PRUNE;
+    // Phase 2 distance ignoring edges, and ignoring corners: [perm * N_SLICE_PERM + slicePerm]
+    private static final byte[] CORNER_SLICE_PRUNE;
+    private static final byte[] EDGE_SLICE_PRUNE;
+
+    private static final int[] ALL_MOVES = new int[Coordinates.N_MOVES];
+    private static final int[] PHASE2_MOVES = new int[10];
+
+    static {
+        for(int m = 0, p = 0; m < Coordinates.N_MOVES; m++){
+            ALL_MOVES[m] = m;
+            if(Coordinates.isPhase2Move(m)){
+                PHASE2_MOVES[p++] = m;
+            }
+        }
+        TWIST_SLICE_PRUNE = buildPruning(Coordinates.TWIST_MOVE, Coordinates.N_TWIST,
+                Coordinates.SLICE_MOVE, Coordinates.N_SLICE, ALL_MOVES);
+        FLIP_SLICE_PRUNE = buildPruning(Coordinates.FLIP_MOVE, Coordinates.N_FLIP,
+                Coordinates.SLICE_MOVE, Coordinates.N_SLICE, ALL_MOVES);
+        CORNER_SLICE_PRUNE = buildPruning(Coordinates.CORNER_PERM_MOVE, Coordinates.N_CORNER_PERM,
+                Coordinates.SLICE_PERM_MOVE, Coordinates.N_SLICE_PERM, PHASE2_MOVES);
+        EDGE_SLICE_PRUNE = buildPruning(Coordinates.UD_EDGE_PERM_MOVE, Coordinates.N_UD_EDGE_PERM,
+                Coordinates.SLICE_PERM_MOVE, Coordinates.N_SLICE_PERM, PHASE2_MOVES);
+    }
+
+    /**
+     * Breadth first search over the product of two coordinates, solved is index 0
+     */
+    private static byte[] buildPruning(int[][] moveA, int sizeA, int[][] moveB, int sizeB, int[] moveSet){
+        byte[] dist = new byte[sizeA * sizeB];
+        Arrays.fill(dist, (byte) -1);
+        dist[0] = 0;
+        int reached = 1;
+        for(int depth = 0; reached < dist.length; depth++){
+            for(int i = 0; i < dist.length; i++){
+                if(dist[i] != depth){ continue; }
+                int[] rowA = moveA[i / sizeB];
+                int[] rowB = moveB[i % sizeB];
+                for(int m: moveSet){
+                    int next = rowA[m] * sizeB + rowB[m];
+                    if(dist[next] == -1){
+                        dist[next] = (byte) (depth + 1);
+                        reached++;
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+
+    private final long timeLimit;
+    private final int targetLength;
+
+    // Search state of the current solve
+    private final int[] moves = new int[MAX_LENGTH];
+    private final int[] bestMoves = new int[MAX_LENGTH];
+    private int bestLength;
+    private RubiksCube start;
+    private RubiksCube scratch;
+    private long deadline;
+    private Deadline cancel;
+    private long nodes;
+    private boolean stopped;
+
+    /**
+     * Search for up to 1 second, or until phase 1 can no longer improve the solution
+     */
+    public TwoPhaseSolver(){
+        this(1000, 0);
+    }
+
+    /**
+     * @param timeLimit milliseconds to spend improving the solution
+     * @param targetLength stop as soon as a solution of at most this many moves is found
+     */
+    public TwoPhaseSolver(long timeLimit, int targetLength){
+        this.timeLimit = timeLimit;
+        this.targetLength = targetLength;
+    }
+
+    /**
+     * A solver for a first complete answer that an optimal solver can return
+     * if it runs out of time, see IDAStarSolver.setQuickSolver
+     */
+    public static TwoPhaseSolver quick(){
+        return new TwoPhaseSolver(QUICK_TIME_LIMIT, 0);
+    }
+
+    @Override
+    public String solve(RubiksCube cube){
+        return solve(cube, Deadline.none());
+    }
+
+    /**
+     * Stops at the time limit or at deadline, whichever comes first, with the
+     * shortest solution found by then
+     */
+    @Override
+    public String solve(RubiksCube cube, Deadline deadline){
+        if(cube == null){ return null; }
+
+        this.deadline = System.currentTimeMillis() + Math.min(timeLimit, deadline.remainingMillis());
+        this.cancel = deadline;
+        nodes = 0;
+        stopped = false;
+        bestLength = MAX_LENGTH + 1;
+        start = cube.copy();
+        scratch = cube.copy();
+
+        int twist = Coordinates.twist(cube);
+        int flip = Coordinates.flip(cube);
+        int slice = Coordinates.slice(cube);
+        int h = phase1Distance(twist, flip, slice);
+
+        for(int depth = h; depth < bestLength && !stopped; depth++){
+            phase1(twist, flip, slice, 0, depth);
+        }
+        return bestLength > MAX_LENGTH ? null : RubiksCube.movesToString(bestMoves, bestLength);
+    }
+
+    private boolean outOfTime(){
+        return System.currentTimeMillis() > deadline || cancel.isCancelled();
+    }
+
+    /**
+     * Nodes expanded by the last solve
+     */
+    public long getNodes(){
+        return nodes;
+    }
+
+    private static int phase1Distance(int twist, int flip, int slice){
+        return Math.max(TWIST_SLICE_PRUNE[twist * Coordinates.N_SLICE + slice],
+                FLIP_SLICE_PRUNE[flip * Coordinates.N_SLICE + slice]);
+    }
+
+    private static int phase2Distance(int cornerPerm, int edgePerm, int slicePerm){
+        return Math.max(CORNER_SLICE_PRUNE[cornerPerm * Coordinates.N_SLICE_PERM + slicePerm],
+                EDGE_SLICE_PRUNE[edgePerm * Coordinates.N_SLICE_PERM + slicePerm]);
+    }
+
+    /**
+     * Depth first search for phase 1 sequences of exactly n + remaining moves
+     */
+    private void phase1(int twist, int flip, int slice, int n, int remaining){
+        if(remaining == 0){
+            // A sequence ending in a G1 move was already tried one move shorter
+            if(n == 0 || !Coordinates.isPhase2Move(moves[n - 1])){
+                startPhase2(n);
+            }
+            return;
+        }
+        if(++nodes % CLOCK_INTERVAL == 0 && outOfTime()){
+            stopped = true;
+        }
+        for(int m = 0; m < Coordinates.N_MOVES && !stopped; m++){
+            if(n > 0 && isRedundant(moves[n - 1], m)){ continue; }
+
+            int nextTwist = Coordinates.TWIST_MOVE[twist][m];
+            int nextFlip = Coordinates.FLIP_MOVE[flip][m];
+            int nextSlice = Coordinates.SLICE_MOVE[slice][m];
+            if(phase1Distance(nextTwist, nextFlip, nextSlice) >= remaining){ continue; }
+
+            moves[n] = m;
+            phase1(nextTwist, nextFlip, nextSlice, n + 1, remaining - 1);
+        }
+    }
+
+    /**
+     * The first n moves reach G1, solve the rest with a shorter total than the best so far
+     */
+    private void startPhase2(int n){
+        scratch.copyFrom(start);
+        for(int i = 0; i < n; i++){
+            scratch.applyMove(moves[i]);
+        }
+        int cornerPerm = Coordinates.cornerPerm(scratch);
+        int edgePerm = Coordinates.udEdgePerm(scratch);
+        int slicePerm = Coordinates.slicePerm(scratch);
+
+        int maxDepth = Math.min(MAX_PHASE2, bestLength - 1 - n);
+        for(int depth = phase2Distance(cornerPerm, edgePerm, slicePerm); depth <= maxDepth && !stopped; depth++){
+            if(phase2(cornerPerm, edgePerm, slicePerm, n, depth)){
+                bestLength = n + depth;
+                System.arraycopy(moves, 0, bestMoves, 0, bestLength);
+                if(bestLength <= targetLength){
+                    stopped = true;
+                }
+                return;
+            }
+        }
+    }
+
+    private boolean phase2(int cornerPerm, int edgePerm, int slicePerm, int n, int remaining){
+        if(remaining == 0){
+            return cornerPerm == 0 && edgePerm == 0 && slicePerm == 0;
+        }
+        if(++nodes % CLOCK_INTERVAL == 0 && outOfTime()){
+            stopped = true;
+        }
+        for(int m: PHASE2_MOVES){
+            if(stopped){ return false; }
+            if(n > 0 && isRedundant(moves[n - 1], m)){ continue; }
+
+            int nextCorner = Coordinates.CORNER_PERM_MOVE[cornerPerm][m];
+            int nextEdge = Coordinates.UD_EDGE_PERM_MOVE[edgePerm][m];
+            int nextSlice = Coordinates.SLICE_PERM_MOVE[slicePerm][m];
+            if(phase2Distance(nextCorner, nextEdge, nextSlice) >= remaining){ continue; }
+
+            moves[n] = m;
+            if(phase2(nextCorner, nextEdge, nextSlice, n + 1, remaining - 1)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same face twice in a row, or opposite faces in the non-canonical order
+     */
+    private static boolean isRedundant(int prev, int move){
+        int prevFace = prev / 3, face = move / 3;
+        return face == prevFace || (face / 2 == prevFace / 2 && face < prevFace);
+    }
+}
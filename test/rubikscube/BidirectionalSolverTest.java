@@ -0,0 +1,137 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class BidirectionalSolverTest {
+    /**
+     * True if an accepted sequence of exactly length moves solves cube,
+     * cube is left as it was
+     */
+    private static boolean solvableIn(RubiksCube cube, int state, int length) {
+        if(length == 0){
+            return cube.isSolved();
+        }
+        for(int move = 0; move < RubiksCube.N_MOVES; move++){
+            int next = MoveAutomaton.HALF_TURNS.next(state, move);
+            if(next < 0){ continue; }
+            cube.applyMove(move);
+            boolean solved = solvableIn(cube, next, length - 1);
+            cube.applyMove(RubiksCube.inverse(move));
+            if(solved){ return true; }
+        }
+        return false;
+    }
+
+    private static int optimalLength(RubiksCube cube) {
+        int length = 0;
+        while(!solvableIn(cube, MoveAutomaton.START, length)){
+            length++;
+        }
+        return length;
+    }
+
+    private static int moveCount(String solution) {
+        return solution.isEmpty() ? 0 : solution.split(" ").length;
+    }
+
+    @Test
+    void findsOptimalSolutionsOfShortScrambles() {
+        BidirectionalSolver bidirectional = new BidirectionalSolver(null, 64L << 20);
+        SplittableRandom random = new SplittableRandom(7);
+        for(int depth = 1; depth <= 7; depth++){
+            RubiksCube cube = new RubiksCube();
+            for(int i = 0; i < depth; i++){
+                cube.applyMove(random.nextInt(RubiksCube.N_MOVES));
+            }
+            String solution = bidirectional.solve(cube);
+            assertNotNull(solution, "depth " + depth);
+            RubiksCube check = cube.copy();
+            check.applyMoves(solution);
+            assertTrue(check.isSolved(), solution);
+            assertTrue(moveCount(solution) <= depth, solution);
+            if(depth <= 5){
+                assertEquals(optimalLength(cube), moveCount(solution), solution);
+            }
+        }
+    }
+
+    @Test
+    void solvedCubeNeedsNoMoves() {
+        assertEquals("", new BidirectionalSolver().solve(new RubiksCube()));
+    }
+
+    @Test
+    void droppedLayerLeavesTheEarlierStatesFindable() {
+        BidirectionalSolver.Side side = new BidirectionalSolver.Side();
+        side.reset(new RubiksCube());
+        SplittableRandom random = new SplittableRandom(181);
+        RubiksCube cube = new RubiksCube();
+        long[] kept = new long[2000], dropped = new long[2000];
+        for(int i = 0; i < kept.length; i++){
+            ScrambleGenerator.randomState(random, cube);
+            kept[i] = cube.cornerState();
+            side.reserve(1);
+            side.add(cube.cornerState(), cube.edgeState(), 0);
+        }
+        side.nextLayer();
+        // Same edges as the kept states, so both layers share probe runs
+        for(int i = 0; i < dropped.length; i++){
+            ScrambleGenerator.randomState(random, cube);
+            dropped[i] = cube.cornerState();
+            side.reserve(1);
+            side.add(cube.cornerState(), new RubiksCube().edgeState(), 0);
+        }
+        side.dropNextLayer();
+
+        random = new SplittableRandom(181);
+        for(int i = 0; i < kept.length; i++){
+            ScrambleGenerator.randomState(random, cube);
+            assertTrue(side.contains(cube.cornerState(), cube.edgeState()), "kept " + i);
+        }
+        for(long corners: dropped){
+            assertFalse(side.contains(corners, new RubiksCube().edgeState()));
+        }
+    }
+
+    /**
+     * Solves cut short by their deadline while the kept solved side grows
+     * must not make later solves worse than a fresh solver's
+     */
+    @Test
+    void expiredSolvesKeepLaterSolutionsOptimal() {
+        BidirectionalSolver solver = new BidirectionalSolver(null, 64L << 20);
+        solver.setQuickSolver(null);
+        BidirectionalSolver fresh = new BidirectionalSolver(null, 64L << 20);
+        fresh.setQuickSolver(null);
+        SplittableRandom random = new SplittableRandom(18);
+        RubiksCube deep = new RubiksCube(), cube = new RubiksCube();
+        for(int i = 0; i < 20; i++){
+            ScrambleGenerator.randomMoves(random, 20, deep);
+            solver.solve(deep, Deadline.after(1 + i % 5));
+
+            ScrambleGenerator.randomMoves(random, 8, cube);
+            String solution = solver.solve(cube);
+            assertNotNull(solution);
+            assertTrue(SolutionOptimizer.solves(cube, solution), solution);
+            assertEquals(RubiksCube.parseMoves(fresh.solve(cube)).length, RubiksCube.parseMoves(solution).length, solution);
+        }
+    }
+
+    @Test
+    void expiredDeadlineReturnsTheQuickAnswer() {
+        RubiksCube cube = new RubiksCube();
+        ScrambleGenerator.randomState(new SplittableRandom(8), cube);
+        // Build the two-phase tables first, as SolverServer does, or building them uses up the deadline
+        TwoPhaseSolver.quick().solve(new RubiksCube());
+        String solution = new BidirectionalSolver().solve(cube, Deadline.after(200));
+        assertNotNull(solution);
+        assertTrue(SolutionOptimizer.solves(cube, solution), solution);
+    }
+}
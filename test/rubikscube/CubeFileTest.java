@@ -0,0 +1,89 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CubeFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void committedFileReadsBackEveryCube() throws IOException {
+        Path file = dir.resolve("random.cubes");
+        RubiksCube[] cubes = new RubiksCube[100];
+        SplittableRandom random = new SplittableRandom(12);
+        try(CubeFile.Writer writer = new CubeFile.Writer(file)){
+            for(int i = 0; i < cubes.length; i++){
+                cubes[i] = new RubiksCube();
+                for(int j = 0; j < 30; j++){
+                    cubes[i].applyMove(random.nextInt(RubiksCube.N_MOVES));
+                }
+                writer.append(cubes[i]);
+            }
+            writer.commit();
+        }
+
+        CubeFile read = CubeFile.open(file);
+        assertEquals(cubes.length, read.size());
+        RubiksCube cube = new RubiksCube();
+        for(int i = 0; i < cubes.length; i++){
+            read.read(i, cube);
+            assertEquals(cubes[i], cube);
+        }
+        assertFalse(Files.exists(dir.resolve("random.cubes.tmp")));
+    }
+
+    @Test
+    void failureBeforeCommitLeavesNoFile() throws IOException {
+        Path file = dir.resolve("partial.cubes");
+        assertThrows(UncheckedIOException.class, () -> {
+            try(CubeFile.Writer writer = new CubeFile.Writer(file)){
+                writer.append(new RubiksCube());
+                throw new UncheckedIOException(new IOException("input went away"));
+            }
+        });
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(dir.resolve("partial.cubes.tmp")));
+    }
+
+    @Test
+    void unsolvableRecordIsRejected() throws IOException {
+        Path file = dir.resolve("twisted.cubes");
+        try(CubeFile.Writer writer = new CubeFile.Writer(file)){
+            writer.append(new RubiksCube());
+            writer.commit();
+        }
+        // Twist the first corner in place
+        long corners = new RubiksCube().cornerState() | 1L << 3;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)){
+            channel.write(ByteBuffer.allocate(8).putLong(0, corners), Files.size(file) - CubeFile.RECORD_SIZE);
+        }
+
+        CubeFile read = CubeFile.open(file);
+        IncorrectFormatException e = assertThrows(IncorrectFormatException.class, () -> read.read(0, new RubiksCube()));
+        assertTrue(e.getMessage().contains("twisted"), e.getMessage());
+    }
+
+    @Test
+    void testcaseNetsRoundTrip() throws IOException {
+        for(int i = 1; i <= 10; i++){
+            String file = String.format("testcases/scramble%02d.txt", i);
+            String net = RubiksCube.netToString(CubieMapper.toNet(new RubiksCube(file)));
+            assertEquals(RubiksCube.netToString(RubiksCube.readNet(file)), net, file);
+        }
+    }
+}
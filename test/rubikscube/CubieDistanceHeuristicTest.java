@@ -0,0 +1,58 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class CubieDistanceHeuristicTest {
+    private static final CubieDistanceHeuristic HEURISTIC = new CubieDistanceHeuristic();
+
+    @Test
+    void solvedCubeIsZero() {
+        assertEquals(0, HEURISTIC.calculate(new RubiksCube()));
+    }
+
+    @Test
+    void everySingleMoveIsOne() {
+        for(int move = 0; move < RubiksCube.N_MOVES; move++){
+            RubiksCube cube = new RubiksCube();
+            cube.applyMove(move);
+            assertEquals(1, HEURISTIC.calculate(cube), RubiksCube.moveName(move));
+        }
+    }
+
+    @Test
+    void unsolvedCubesArePositive() {
+        SplittableRandom random = new SplittableRandom(24);
+        RubiksCube cube = new RubiksCube();
+        for(int i = 0; i < 2000; i++){
+            ScrambleGenerator.randomState(random, cube);
+            if(!cube.isSolved()){
+                assertTrue(HEURISTIC.calculate(cube) > 0, cube.toString());
+            }
+        }
+    }
+
+    /**
+     * Never above the optimal solution length the bidirectional search proves
+     */
+    @Test
+    void neverOverestimatesShortScrambles() {
+        BidirectionalSolver optimal = new BidirectionalSolver(null, 64L << 20);
+        SplittableRandom random = new SplittableRandom(25);
+        RubiksCube cube = new RubiksCube();
+        for(int i = 0; i < 40; i++){
+            ScrambleGenerator.randomMoves(random, 1 + random.nextInt(7), cube);
+            String solution = optimal.solve(cube);
+            assertNotNull(solution);
+            int length = RubiksCube.parseMoves(solution).length;
+            int estimate = HEURISTIC.calculate(cube);
+            assertTrue(estimate <= length, estimate + " > " + length + " for " + solution);
+            assertTrue(estimate > 0 || length == 0, solution);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class CubieMapperTest {
+    // Facelets of corner UFL (U, F, L side) and of edges UF and UL (U side first)
+    private static final int UFL_U = 2 * CubieMapper.NET_COLS + 3, UFL_F = 3 * CubieMapper.NET_COLS + 3,
+            UFL_L = 3 * CubieMapper.NET_COLS + 2;
+    private static final int UF_U = 2 * CubieMapper.NET_COLS + 4, UF_F = 3 * CubieMapper.NET_COLS + 4;
+    private static final int UL_U = CubieMapper.NET_COLS + 3, UL_L = 3 * CubieMapper.NET_COLS + 1;
+    private static final int FRONT_CENTER = 4 * CubieMapper.NET_COLS + 4;
+
+    private static void swap(char[] net, int a, int b) {
+        char c = net[a];
+        net[a] = net[b];
+        net[b] = c;
+    }
+
+    private static void assertRejected(char[] net, String reason) {
+        IncorrectFormatException e = assertThrows(IncorrectFormatException.class,
+                () -> CubieMapper.parse(net, new RubiksCube()));
+        assertTrue(e.getMessage().contains(reason), e.getMessage());
+    }
+
+    @Test
+    void netRoundTripsThroughCubies() {
+        SplittableRandom random = new SplittableRandom(13);
+        RubiksCube parsed = new RubiksCube();
+        for(int i = 0; i < 200; i++){
+            RubiksCube cube = new RubiksCube();
+            for(int j = 0; j < 30; j++){
+                cube.applyMove(random.nextInt(RubiksCube.N_MOVES));
+            }
+            CubieMapper.parse(CubieMapper.toNet(cube), parsed);
+            assertEquals(cube, parsed);
+        }
+    }
+
+    @Test
+    void rejectsATwistedCorner() {
+        char[] net = CubieMapper.solvedState();
+        swap(net, UFL_U, UFL_F);
+        swap(net, UFL_F, UFL_L);
+        assertRejected(net, "twisted");
+    }
+
+    @Test
+    void rejectsAMirroredCorner() {
+        char[] net = CubieMapper.solvedState();
+        swap(net, UFL_U, UFL_F);
+        assertRejected(net, "mirrored");
+    }
+
+    @Test
+    void rejectsAFlippedEdge() {
+        char[] net = CubieMapper.solvedState();
+        swap(net, UF_U, UF_F);
+        assertRejected(net, "flipped");
+    }
+
+    @Test
+    void rejectsTwoSwappedPieces() {
+        char[] net = CubieMapper.solvedState();
+        swap(net, UF_U, UL_U);
+        swap(net, UF_F, UL_L);
+        assertRejected(net, "swapped");
+    }
+
+    @Test
+    void rejectsADuplicatePiece() {
+        char[] net = CubieMapper.solvedState();
+        net[UL_U] = net[UF_U];
+        net[UL_L] = net[UF_F];
+        assertRejected(net, "second copy");
+    }
+
+    @Test
+    void rejectsAWrongCenter() {
+        char[] net = CubieMapper.solvedState();
+        net[FRONT_CENTER] = 'Y';
+        assertRejected(net, "Center");
+    }
+
+    @Test
+    void rejectsAnUnknownColor() {
+        char[] net = CubieMapper.solvedState();
+        net[UF_F] = 'X';
+        assertRejected(net, "Unknown color");
+    }
+
+    private static void assertInvalid(long corners, long edges, String reason) {
+        IncorrectFormatException e = assertThrows(IncorrectFormatException.class,
+                () -> CubieMapper.validate(corners, edges));
+        assertTrue(e.getMessage().contains(reason), e.getMessage());
+    }
+
+    @Test
+    void validateRejectsUnreachablePackedStates() {
+        long corners = new RubiksCube().cornerState(), edges = new RubiksCube().edgeState();
+        CubieMapper.validate(corners, edges);
+        // Corner 0 twisted, edge 0 flipped
+        assertInvalid(corners | 1L << 3, edges, "twisted");
+        assertInvalid(corners, edges | 1L << 4, "flipped");
+        // Edges 0 and 1 trade places
+        assertInvalid(corners, edges ^ 1L ^ 1L << 5, "swapped");
+        // Edge 1 replaced by a second edge 0
+        assertInvalid(corners, edges & ~(0x1FL << 5), "Invalid");
+    }
+
+    @Test
+    void validateAcceptsRandomStates() {
+        SplittableRandom random = new SplittableRandom(14);
+        RubiksCube cube = new RubiksCube();
+        for(int i = 0; i < 200; i++){
+            ScrambleGenerator.randomState(random, cube);
+            CubieMapper.validate(cube.cornerState(), cube.edgeState());
+        }
+    }
+}
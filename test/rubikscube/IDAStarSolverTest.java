@@ -0,0 +1,124 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class IDAStarSolverTest {
+    private static RubiksCube scramble(Random random, int moves) {
+        RubiksCube cube = new RubiksCube();
+        for(int i = 0; i < moves; i++){
+            cube.applyMove(random.nextInt(RubiksCube.N_MOVES));
+        }
+        return cube;
+    }
+
+    private static int moveCount(String solution) {
+        return solution.isEmpty() ? 0 : solution.split(" ").length;
+    }
+
+    private static void assertSolves(RubiksCube cube, String solution) {
+        assertNotNull(solution);
+        RubiksCube check = cube.copy();
+        check.applyMoves(solution);
+        assertTrue(check.isSolved(), solution);
+    }
+
+    @Test
+    void parallelSearchFindsSolutionsAsShortAsSerial() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Heuristic heuristic = new CubieDistanceHeuristic();
+            IDAStarSolver serial = new IDAStarSolver(heuristic);
+            IDAStarSolver parallel = new IDAStarSolver(heuristic, pool, 2);
+            Random random = new Random(6);
+            for(int i = 0; i < 5; i++){
+                RubiksCube cube = scramble(random, 7);
+                String expected = serial.solve(cube);
+                String found = parallel.solve(cube);
+                assertSolves(cube, expected);
+                assertSolves(cube, found);
+                assertEquals(moveCount(expected), moveCount(found), expected + " / " + found);
+
+                // Every iteration before the one that found the solution searched the same tree
+                List<SearchMetrics.Iteration> serialIterations = serial.getMetrics().getIterations();
+                List<SearchMetrics.Iteration> parallelIterations = parallel.getMetrics().getIterations();
+                assertEquals(serialIterations.size(), parallelIterations.size());
+                for(int k = 0; k < serialIterations.size() - 1; k++){
+                    assertTrue(serialIterations.get(k).isComplete());
+                    assertEquals(serialIterations.get(k).getNodes(), parallelIterations.get(k).getNodes(),
+                            "threshold " + serialIterations.get(k).getThreshold());
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A random state, too deep for IDA* to finish in the tests' deadlines
+     */
+    private static RubiksCube randomState(long seed) {
+        RubiksCube cube = new RubiksCube();
+        ScrambleGenerator.randomState(new SplittableRandom(seed), cube);
+        return cube;
+    }
+
+    @Test
+    void expiredDeadlineReturnsTheQuickSolution() {
+        RubiksCube cube = randomState(180);
+        IDAStarSolver solver = new IDAStarSolver();
+        solver.setQuickSolver(TwoPhaseSolver.quick());
+        // Build the two-phase tables first, or building them uses up the deadline
+        TwoPhaseSolver.quick().solve(new RubiksCube());
+
+        String solution = solver.solve(cube, Deadline.after(300));
+        assertSolves(cube, solution);
+        assertFalse(solver.isOptimal());
+        assertTrue(solver.getLowerBound() > 0);
+    }
+
+    @Test
+    void expiredDeadlineWithoutQuickSolverReturnsNull() {
+        RubiksCube cube = randomState(181);
+        IDAStarSolver solver = new IDAStarSolver();
+        assertNull(solver.solve(cube, Deadline.after(100)));
+        assertFalse(solver.isOptimal());
+
+        // The best partial leads somewhere closer to solved by the heuristic
+        String partial = solver.getBestPartial();
+        assertFalse(partial.isEmpty());
+        RubiksCube closer = cube.copy();
+        closer.applyMoves(partial);
+        Heuristic heuristic = new CubieDistanceHeuristic();
+        assertEquals(solver.getBestPartialHeuristic(), heuristic.calculate(closer));
+        assertTrue(heuristic.calculate(closer) < heuristic.calculate(cube));
+    }
+
+    /**
+     * IDA* stops once its threshold reaches the quick answer's length, which
+     * proves that answer optimal
+     */
+    @Test
+    void quickSolutionIsProvenOptimal() {
+        RubiksCube cube = new RubiksCube();
+        cube.applyMoves("R U2 F'");
+        IDAStarSolver solver = new IDAStarSolver();
+        solver.setQuickSolver(TwoPhaseSolver.quick());
+        String solution = solver.solve(cube, Deadline.none());
+        assertSolves(cube, solution);
+        assertEquals(3, moveCount(solution));
+        assertTrue(solver.isOptimal());
+        assertEquals(3, solver.getLowerBound());
+    }
+}
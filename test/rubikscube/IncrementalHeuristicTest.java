@@ -0,0 +1,59 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class IncrementalHeuristicTest {
+    private static final CubieDistanceHeuristic HEURISTIC = new CubieDistanceHeuristic();
+    private static final int STEPS = 20000;
+    private static final int MAX_DEPTH = 20;
+
+    /**
+     * Random walk that pushes a move or pops the last one, like a depth first search
+     */
+    @Test
+    void valueMatchesCalculateAfterApplyAndUndo() {
+        SplittableRandom random = new SplittableRandom(251);
+        RubiksCube cube = new RubiksCube();
+        ScrambleGenerator.randomState(random, cube);
+        Heuristic.Incremental evaluator = HEURISTIC.incremental(cube);
+        int[] moves = new int[MAX_DEPTH];
+        int length = 0;
+        for(int step = 0; step < STEPS; step++){
+            if(length == 0 || (length < MAX_DEPTH && random.nextBoolean())){
+                int move = random.nextInt(RubiksCube.N_MOVES);
+                cube.applyMove(move);
+                evaluator.apply(move);
+                moves[length++] = move;
+            } else {
+                int move = moves[--length];
+                cube.applyMove(RubiksCube.inverse(move));
+                evaluator.undo(move);
+            }
+            assertEquals(HEURISTIC.calculate(cube), evaluator.value(), "step " + step);
+        }
+    }
+
+    /**
+     * SearchPath turns the cube back before calling undo, the order the
+     * evaluator relies on
+     */
+    @Test
+    void searchPathKeepsTheHeuristicInSync() {
+        SplittableRandom random = new SplittableRandom(252);
+        RubiksCube cube = new RubiksCube();
+        ScrambleGenerator.randomMoves(random, 12, cube);
+        IDAStarSolver.SearchPath path = new IDAStarSolver.SearchPath(cube, HEURISTIC);
+        for(int step = 0; step < STEPS; step++){
+            if(path.length == 0 || (path.length < MAX_DEPTH && random.nextBoolean())){
+                path.push(random.nextInt(RubiksCube.N_MOVES));
+            } else {
+                path.pop(path.moves[path.length - 1]);
+            }
+            assertEquals(HEURISTIC.calculate(path.cube), path.heuristic.value(), "step " + step);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class MoveAutomatonTest {
+    private static final MoveAutomaton AUTOMATON = MoveAutomaton.HALF_TURNS;
+    private static final int MOVES = RubiksCube.N_MOVES;
+    private static final int DEPTH = 3;
+
+    /**
+     * Cubes at exactly each distance up to DEPTH from solved, by breadth first search
+     */
+    private static List<Set<RubiksCube>> distanceLayers() {
+        List<Set<RubiksCube>> layers = new ArrayList<>();
+        Set<RubiksCube> seen = new HashSet<>();
+        Set<RubiksCube> layer = new HashSet<>();
+        layer.add(new RubiksCube());
+        seen.addAll(layer);
+        layers.add(layer);
+        for(int depth = 1; depth <= DEPTH; depth++){
+            Set<RubiksCube> next = new HashSet<>();
+            for(RubiksCube cube: layer){
+                for(int move = 0; move < MOVES; move++){
+                    RubiksCube turned = cube.copy();
+                    turned.applyMove(move);
+                    if(seen.add(turned)){
+                        next.add(turned);
+                    }
+                }
+            }
+            layers.add(next);
+            layer = next;
+        }
+        return layers;
+    }
+
+    /**
+     * Add the cube of every accepted sequence of exactly length moves to cubes
+     * @return the number of sequences
+     */
+    private static long acceptedSequences(RubiksCube cube, int state, int length, Set<RubiksCube> cubes) {
+        if(length == 0){
+            cubes.add(cube.copy());
+            return 1;
+        }
+        long count = 0;
+        for(int move = 0; move < MOVES; move++){
+            int next = AUTOMATON.next(state, move);
+            if(next < 0){ continue; }
+            RubiksCube turned = cube.copy();
+            turned.applyMove(move);
+            count += acceptedSequences(turned, next, length - 1, cubes);
+        }
+        return count;
+    }
+
+    /**
+     * Up to DEPTH moves every sequence the automaton accepts is a shortest
+     * one, and every cube has exactly one
+     */
+    @Test
+    void acceptsExactlyOneShortestSequencePerCube() {
+        List<Set<RubiksCube>> layers = distanceLayers();
+        for(int length = 0; length <= DEPTH; length++){
+            Set<RubiksCube> cubes = new HashSet<>();
+            long sequences = acceptedSequences(new RubiksCube(), MoveAutomaton.START, length, cubes);
+            assertEquals(layers.get(length).size(), sequences, "length " + length);
+            assertEquals(layers.get(length), cubes, "length " + length);
+            assertEquals(sequences, AUTOMATON.countSequences(length), "length " + length);
+        }
+    }
+
+    @Test
+    void prunesBelowEveryMoveSequence() {
+        // Start, then the last move
+        assertEquals(1 + 6 * 3, AUTOMATON.stateCount());
+        long all = MOVES;
+        for(int length = 2; length <= 8; length++){
+            all *= MOVES;
+            assertTrue(AUTOMATON.countSequences(length) < all, "length " + length);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RubiksCubeTest {
+    private static RubiksCube solved() throws IOException {
+        return new RubiksCube("testcases/cubeInit.txt");
+    }
+
+    @Test
+    void everyMoveHasOrderFourOrTwo() throws IOException {
+        for(int move = 0; move < RubiksCube.N_MOVES; move++){
+            int order = move % 3 == 1 ? 2 : 4;
+            RubiksCube cube = solved();
+            for(int i = 1; i < order; i++){
+                cube.applyMove(move);
+                assertFalse(cube.isSolved(), RubiksCube.moveName(move) + " " + i + " times");
+            }
+            cube.applyMove(move);
+            assertEquals(solved(), cube, RubiksCube.moveName(move) + " " + order + " times");
+        }
+    }
+
+    @Test
+    void movesMatchTheirQuarterTurns() throws IOException {
+        for(int move = 0; move < RubiksCube.N_MOVES; move++){
+            RubiksCube turned = solved();
+            turned.applyMove(move);
+            RubiksCube quarters = solved();
+            for(int i = 0; i <= move % 3; i++){
+                quarters.applyMove(move - move % 3);
+            }
+            assertEquals(quarters, turned, RubiksCube.moveName(move));
+
+            turned.applyMove(RubiksCube.inverse(move));
+            assertTrue(turned.isSolved(), RubiksCube.moveName(move) + " then its inverse");
+        }
+    }
+
+    @Test
+    void parsesStandardNotation() throws IOException {
+        RubiksCube spaced = solved();
+        spaced.applyMoves("F2 R' U\n");
+        RubiksCube packed = solved();
+        packed.applyMoves("FFRRRU");
+        assertEquals(spaced, packed);
+
+        int[] moves = {0, 7, 12, 17};
+        assertEquals("F R2 U D'", RubiksCube.movesToString(moves, moves.length));
+        assertThrows(IncorrectFormatException.class, () -> solved().applyMoves("R2'"));
+        assertThrows(IncorrectFormatException.class, () -> solved().applyMoves("RX"));
+    }
+
+    @Test
+    void sexyMoveHasOrderSix() throws IOException {
+        RubiksCube cube = solved();
+        for(int i = 0; i < 5; i++){
+            cube.applyMoves("RURRRUUU");
+            assertFalse(cube.isSolved(), "solved after " + (i + 1));
+        }
+        cube.applyMoves("RURRRUUU");
+        assertTrue(cube.isSolved());
+    }
+
+    /**
+     * Orientation is read against the U/D color, so U and D turns keep every
+     * corner untwisted, while a quarter turn of a side face twists its four
+     * corners by +1, +2, +1, +2 and a half turn leaves them all untwisted
+     */
+    @Test
+    void cornerTwistOfEachMove() throws IOException {
+        for(int move = 0; move < RubiksCube.N_MOVES; move++){
+            RubiksCube cube = solved();
+            cube.applyMove(move);
+            int face = move / 3;
+            boolean twists = face != RubiksCube.UP && face != RubiksCube.DOWN && move % 3 != 1;
+
+            int[] count = new int[3];
+            for(int pos = 0; pos < 8; pos++){
+                count[cube.getCornerOrientation(pos)]++;
+            }
+            assertArrayEquals(twists ? new int[]{4, 2, 2} : new int[]{8, 0, 0}, count, RubiksCube.moveName(move));
+        }
+    }
+
+    @Test
+    void testcaseSolutionsSolveTheirScrambles() throws IOException {
+        for(int i = 1; i <= 3; i++){
+            RubiksCube cube = new RubiksCube(String.format("testcases/scramble%02d.txt", i));
+            cube.applyMoves(new String(Files.readAllBytes(Paths.get(String.format("testcases/sol%02d.txt", i)))));
+            assertTrue(cube.isSolved(), "sol" + i);
+        }
+    }
+
+    @Test
+    void toStringFollowsEveryMove() throws IOException {
+        RubiksCube cube = new RubiksCube("testcases/scramble01.txt");
+        RubiksCube target = new RubiksCube();
+        Random random = new Random(14);
+        for(int i = 0; i < 500; i++){
+            cube.applyMove(random.nextInt(RubiksCube.N_MOVES));
+            String expected = RubiksCube.netToString(CubieMapper.toNet(cube));
+            assertEquals(expected, cube.toString());
+            assertEquals(expected, cube.copy().toString());
+            target.copyFrom(cube);
+            assertEquals(expected, target.toString());
+        }
+    }
+}
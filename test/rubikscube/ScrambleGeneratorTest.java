@@ -0,0 +1,44 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class ScrambleGeneratorTest {
+    // Spans two full blocks and part of a third
+    private static final int COUNT = 2 * ScrambleGenerator.BLOCK_SIZE + 1000;
+
+    /**
+     * The first COUNT cubes of generator on threads, as packed corner and edge
+     * states in turn
+     */
+    private static long[] generate(ScrambleGenerator generator, int threads) throws IOException, InterruptedException {
+        long[] states = new long[2 * COUNT];
+        int[] next = {0};
+        generator.generate(COUNT, threads, cube -> {
+            states[next[0]++] = cube.cornerState();
+            states[next[0]++] = cube.edgeState();
+        });
+        assertEquals(states.length, next[0]);
+        return states;
+    }
+
+    @Test
+    void randomStatesAreValidCubes() throws IOException, InterruptedException {
+        long[] states = generate(ScrambleGenerator.randomStates(21), 4);
+        for(int i = 0; i < states.length; i += 2){
+            CubieMapper.validate(states[i], states[i + 1]);
+        }
+    }
+
+    @Test
+    void outputDoesNotDependOnThreads() throws IOException, InterruptedException {
+        ScrambleGenerator states = ScrambleGenerator.randomStates(22);
+        assertArrayEquals(generate(states, 1), generate(states, 4));
+        ScrambleGenerator moves = ScrambleGenerator.randomMoves(20, 22);
+        assertArrayEquals(generate(moves, 1), generate(moves, 4));
+    }
+}
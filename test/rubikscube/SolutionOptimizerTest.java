@@ -0,0 +1,76 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class SolutionOptimizerTest {
+    /**
+     * Scramble a cube with moves and optimize the inverse sequence, its solution
+     */
+    private static String optimizeInverse(String moves) {
+        int[] scramble = RubiksCube.parseMoves(moves);
+        int[] solution = new int[scramble.length];
+        RubiksCube cube = new RubiksCube();
+        for(int i = 0; i < scramble.length; i++){
+            cube.applyMove(scramble[i]);
+            solution[scramble.length - 1 - i] = RubiksCube.inverse(scramble[i]);
+        }
+        return SolutionOptimizer.check(cube, RubiksCube.movesToString(solution, solution.length));
+    }
+
+    @Test
+    void mergesTurnsOfTheSameFace() {
+        assertEquals("R2", optimizeInverse("R R"));
+        assertEquals("", optimizeInverse("R R'"));
+        assertEquals("U", optimizeInverse("U2 U"));
+        // Across a turn of the opposite face
+        assertEquals("B'", optimizeInverse("F B F'"));
+        assertEquals("", optimizeInverse("F B F' B'"));
+    }
+
+    @Test
+    void writesEachAxisLowerFaceFirst() {
+        assertEquals("F B", optimizeInverse("F' B'"));
+        assertEquals("U D", optimizeInverse("U' D'"));
+    }
+
+    @Test
+    void replacesWindowsWithShorterSequences() {
+        // Nothing merges, but the twelve moves are the identity
+        assertEquals("", optimizeInverse("R2 U2 R2 U2 R2 U2 R2 U2 R2 U2 R2 U2"));
+        assertEquals("U2 R2", optimizeInverse("U2 R2 U2 R2 U2 R2 U2 R2 U2 R2"));
+    }
+
+    @Test
+    void rejectsSolutionsThatDoNotSolve() {
+        RubiksCube cube = new RubiksCube();
+        cube.applyMoves("R U");
+        assertNull(SolutionOptimizer.check(cube, "U' R"));
+        assertTrue(!SolutionOptimizer.solves(cube, "U' R"));
+        assertTrue(SolutionOptimizer.solves(cube, "U' R'"));
+    }
+
+    @Test
+    void optimizedRandomSequencesStillSolveAndNeverGrow() {
+        SplittableRandom random = new SplittableRandom(11);
+        for(int i = 0; i < 200; i++){
+            int length = 1 + random.nextInt(40);
+            int[] moves = new int[length];
+            for(int j = 0; j < length; j++){
+                moves[j] = random.nextInt(RubiksCube.N_MOVES);
+            }
+            RubiksCube cube = new RubiksCube();
+            for(int j = length - 1; j >= 0; j--){
+                cube.applyMove(RubiksCube.inverse(moves[j]));
+            }
+            String optimized = SolutionOptimizer.check(cube, RubiksCube.movesToString(moves, length));
+            assertTrue(SolutionOptimizer.solves(cube, optimized), optimized);
+            assertTrue(RubiksCube.parseMoves(optimized).length <= length, optimized);
+        }
+    }
+}
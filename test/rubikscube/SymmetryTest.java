@@ -0,0 +1,111 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class SymmetryTest {
+    private static final RubiksCube SOLVED = new RubiksCube();
+
+    private static void scramble(SplittableRandom random, RubiksCube cube) {
+        cube.copyFrom(SOLVED);
+        for(int i = 0; i < 30; i++){
+            cube.applyMove(random.nextInt(RubiksCube.N_MOVES));
+        }
+    }
+
+    @Test
+    void conjugatingSolvedGivesSolved() {
+        RubiksCube conjugate = new RubiksCube();
+        for(int s = 0; s < Symmetry.N_SYM; s++){
+            Symmetry.conjugate(SOLVED, s, conjugate);
+            assertEquals(SOLVED, conjugate, "symmetry " + s);
+        }
+    }
+
+    @Test
+    void inverseSymmetryUndoesTheConjugation() {
+        RubiksCube cube = new RubiksCube(), conjugate = new RubiksCube(), back = new RubiksCube();
+        scramble(new SplittableRandom(2), cube);
+        for(int s = 0; s < Symmetry.N_SYM; s++){
+            Symmetry.conjugate(cube, s, conjugate);
+            Symmetry.conjugate(conjugate, Symmetry.inverse(s), back);
+            assertEquals(cube, back, "symmetry " + s);
+        }
+    }
+
+    /**
+     * Conjugating the cube a sequence leads to is the same as making the
+     * sequence turned by the symmetry
+     */
+    @Test
+    void conjugationCommutesWithMoves() {
+        SplittableRandom random = new SplittableRandom(3);
+        int[] moves = new int[20];
+        for(int i = 0; i < moves.length; i++){
+            moves[i] = random.nextInt(RubiksCube.N_MOVES);
+        }
+        RubiksCube cube = new RubiksCube(), conjugate = new RubiksCube();
+        for(int move: moves){
+            cube.applyMove(move);
+        }
+        for(int s = 0; s < Symmetry.N_SYM; s++){
+            RubiksCube turned = new RubiksCube();
+            for(int move: moves){
+                turned.applyMove(Symmetry.move(s, move));
+            }
+            Symmetry.conjugate(cube, s, conjugate);
+            assertEquals(turned, conjugate, "symmetry " + s);
+        }
+    }
+
+    @Test
+    void invertedStateIsReachedByTheReversedInverseSequence() {
+        int[] moves = RubiksCube.parseMoves("R U2 F' L D B2 R' U");
+        RubiksCube cube = new RubiksCube(), inverse = new RubiksCube();
+        for(int move: moves){
+            cube.applyMove(move);
+        }
+        for(int i = moves.length - 1; i >= 0; i--){
+            inverse.applyMove(RubiksCube.inverse(moves[i]));
+        }
+        assertEquals(inverse.cornerState(), Symmetry.invertCorners(cube.cornerState()));
+        assertEquals(inverse.edgeState(), Symmetry.invertEdges(cube.edgeState()));
+    }
+
+    @Test
+    void reducedCornerIndexIsTheSameForUpDownConjugates() {
+        SplittableRandom random = new SplittableRandom(4);
+        RubiksCube cube = new RubiksCube(), conjugate = new RubiksCube();
+        for(int i = 0; i < 50; i++){
+            scramble(random, cube);
+            int index = SymCoordinates.cornerIndex(cube);
+            assertTrue(index >= 0 && index < SymCoordinates.N_CORNER_INDEX);
+            for(int s = 0; s < Symmetry.N_SYM_UD; s++){
+                Symmetry.conjugate(cube, s, conjugate);
+                assertEquals(index, SymCoordinates.cornerIndex(conjugate), "symmetry " + s);
+            }
+        }
+    }
+
+    @Test
+    void cachedSolutionIsTurnedBackForASymmetricScramble() {
+        RubiksCube cube = new RubiksCube(), conjugate = new RubiksCube();
+        cube.applyMoves("R U F' L2 D B' R2 U'");
+        SolutionCache cache = new SolutionCache(16);
+        cache.put(cube, "U R2 B D' L2 F U' R'");
+
+        for(int s = 0; s < Symmetry.N_SYM; s++){
+            Symmetry.conjugate(cube, s, conjugate);
+            String solution = cache.get(conjugate);
+            assertNotNull(solution, "symmetry " + s);
+            RubiksCube check = conjugate.copy();
+            check.applyMoves(solution);
+            assertTrue(check.isSolved(), "symmetry " + s + ": " + solution);
+        }
+    }
+}
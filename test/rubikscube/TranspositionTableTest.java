@@ -0,0 +1,74 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTest {
+    @Test
+    void probeReturnsTheBestStoredBound() {
+        TranspositionTable table = new TranspositionTable(1 << 16);
+        long key = 0x123456789ABCDEF0L;
+        assertEquals(0, table.probe(key));
+
+        table.store(key, 7);
+        assertEquals(7, table.probe(key));
+        // A weaker bound never replaces a stronger one for the same state
+        table.store(key, 5);
+        assertEquals(7, table.probe(key));
+        table.store(key, 9);
+        assertEquals(9, table.probe(key));
+
+        table.clear();
+        assertEquals(0, table.probe(key));
+        assertEquals(1, table.getMisses());
+    }
+
+    @Test
+    void keyDependsOnTheStateNotTheMoveOrder() {
+        RubiksCube a = new RubiksCube(), b = new RubiksCube();
+        a.applyMoves("F B R");
+        b.applyMoves("B F R");
+        assertEquals(TranspositionTable.key(a, 3), TranspositionTable.key(b, 3));
+        assertNotEquals(TranspositionTable.key(a, 3), TranspositionTable.key(a, 4));
+        assertNotEquals(TranspositionTable.key(a, 3), TranspositionTable.key(new RubiksCube(), 3));
+    }
+
+    @Test
+    void fullTableKeepsEveryBoundAdmissible() {
+        // Two slots, so almost every store evicts
+        TranspositionTable table = new TranspositionTable(16);
+        SplittableRandom random = new SplittableRandom(9);
+        long[] keys = new long[100];
+        for(int i = 0; i < keys.length; i++){
+            keys[i] = random.nextLong();
+            table.store(keys[i], 1 + i % 20);
+        }
+        for(int i = 0; i < keys.length; i++){
+            int bound = table.probe(keys[i]);
+            assertTrue(bound == 0 || bound == 1 + i % 20, "key " + i);
+        }
+    }
+
+    @Test
+    void searchWithTheTableStaysOptimal() {
+        IDAStarSolver plain = new IDAStarSolver();
+        plain.setTranspositionTable(null);
+        IDAStarSolver cached = new IDAStarSolver();
+        cached.setTranspositionTable(new TranspositionTable(1 << 20));
+
+        SplittableRandom random = new SplittableRandom(10);
+        for(int i = 0; i < 5; i++){
+            RubiksCube cube = new RubiksCube();
+            for(int j = 0; j < 5; j++){
+                cube.applyMove(random.nextInt(RubiksCube.N_MOVES));
+            }
+            String expected = plain.solve(cube), found = cached.solve(cube);
+            assertEquals(expected.split(" ").length, found.split(" ").length, expected + " / " + found);
+        }
+    }
+}
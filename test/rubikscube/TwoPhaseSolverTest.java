@@ -0,0 +1,46 @@
+package rubikscube;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TwoPhaseSolverTest {
+    private static void assertSolves(RubiksCube cube, String solution) {
+        assertNotNull(solution);
+        RubiksCube check = cube.copy();
+        check.applyMoves(solution);
+        assertTrue(check.isSolved(), solution);
+    }
+
+    @Test
+    void solvesRandomScrambles() {
+        TwoPhaseSolver solver = new TwoPhaseSolver(5000, 30);
+        Random random = new Random(5);
+        for(int i = 0; i < 20; i++){
+            RubiksCube cube = new RubiksCube();
+            for(int j = 0; j < 30; j++){
+                cube.applyMove(random.nextInt(RubiksCube.N_MOVES));
+            }
+            assertSolves(cube, solver.solve(cube));
+        }
+    }
+
+    @Test
+    void solvesTheTestcases() throws IOException {
+        TwoPhaseSolver solver = new TwoPhaseSolver(5000, 30);
+        for(int i = 1; i <= 10; i++){
+            RubiksCube cube = new RubiksCube(String.format("testcases/scramble%02d.txt", i));
+            assertSolves(cube, solver.solve(cube));
+        }
+    }
+
+    @Test
+    void solvedCubeNeedsNoMoves() {
+        assertEquals("", new TwoPhaseSolver().solve(new RubiksCube()));
+    }
+}